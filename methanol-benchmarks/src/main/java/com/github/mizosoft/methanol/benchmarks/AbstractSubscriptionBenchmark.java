@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.benchmarks;
+
+import static com.github.mizosoft.methanol.benchmarks.BenchmarkUtils.N_CPU;
+
+import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import com.github.mizosoft.methanol.testutils.TestUtils;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the throughput of {@link AbstractSubscription}'s drain loop with items concurrently
+ * submitted by a producer and consumed under different request patterns.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Threads(Threads.MAX)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@SuppressWarnings("unused")
+public class AbstractSubscriptionBenchmark {
+
+  private static final int ITEM_COUNT = 10_000;
+  private static final Integer ITEM = 1;
+
+  @Param({"SYNC", "POOL"})
+  private @MonotonicNonNull ExecutorType executorType;
+
+  @Param({"1", "16", "9223372036854775807"})
+  private long request;
+
+  private @MonotonicNonNull ExecutorService pool;
+  private @MonotonicNonNull Executor executor;
+
+  @Setup
+  public void setUpExecutor() {
+    pool = Executors.newFixedThreadPool(N_CPU);
+    executor = executorType == ExecutorType.SYNC ? FlowSupport.SYNC_EXECUTOR : pool;
+  }
+
+  @TearDown
+  public void tearDownExecutor() {
+    TestUtils.shutdown(pool);
+  }
+
+  @Benchmark
+  public long drain() {
+    var subscriber = new CountingSubscriber(request);
+    var subscription = new QueueSubscription(subscriber, executor);
+    subscription.signal(true);
+    for (int i = 0; i < ITEM_COUNT; i++) {
+      subscription.submit(ITEM);
+    }
+    subscription.complete();
+    return subscriber.completion.join();
+  }
+
+  public enum ExecutorType {
+    SYNC,
+    POOL
+  }
+
+  private static final class CountingSubscriber implements Subscriber<Integer> {
+
+    final CompletableFuture<Long> completion = new CompletableFuture<>();
+    private final long request;
+    private @MonotonicNonNull Subscription subscription;
+    private long received;
+    private long window;
+
+    CountingSubscriber(long request) {
+      this.request = request;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+      window = request;
+      subscription.request(request);
+    }
+
+    @Override
+    public void onNext(Integer item) {
+      received += item;
+      if (request != Long.MAX_VALUE && --window == 0) {
+        window = request;
+        subscription.request(request);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      completion.complete(received);
+    }
+  }
+
+  private static final class QueueSubscription extends AbstractSubscription<Integer> {
+
+    private final ConcurrentLinkedQueue<Integer> items;
+    private volatile boolean complete;
+
+    QueueSubscription(Subscriber<? super Integer> downstream, Executor executor) {
+      super(downstream, executor);
+      items = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    protected long emit(Subscriber<? super Integer> downstream, long emit) {
+      long submitted = 0L;
+      while (true) {
+        Integer item;
+        if (items.isEmpty() && complete) {
+          cancelOnComplete(downstream);
+          return 0L;
+        } else if (submitted >= emit || (item = items.poll()) == null) {
+          return submitted;
+        } else if (submitOnNext(downstream, item)) {
+          submitted++;
+        } else {
+          return 0L;
+        }
+      }
+    }
+
+    void submit(Integer item) {
+      items.offer(item);
+      signal(false);
+    }
+
+    void complete() {
+      complete = true;
+      signal(true);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    var builder =
+        new OptionsBuilder()
+            .include(AbstractSubscriptionBenchmark.class.getSimpleName())
+            .shouldFailOnError(true);
+    new Runner(builder.build()).run();
+  }
+}
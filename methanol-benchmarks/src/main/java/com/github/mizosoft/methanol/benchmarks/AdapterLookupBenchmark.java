@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.benchmarks;
+
+import com.github.mizosoft.methanol.BodyAdapter.Decoder;
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.MoreBodyHandlers;
+import com.github.mizosoft.methanol.TypeRef;
+import com.github.mizosoft.methanol.internal.extensions.ImmutableResponseInfo;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares creating an {@code ofObject} subscriber through the cached decoder lookup against
+ * linearly scanning installed decoders on each creation, which was done prior to caching.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Threads(Threads.MAX)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@SuppressWarnings("unused")
+public class AdapterLookupBenchmark {
+
+  private static final TypeRef<List<Map<String, Object>>> TYPE = new TypeRef<>() {};
+  private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+  private static final ResponseInfo RESPONSE_INFO =
+      new ImmutableResponseInfo(
+          200,
+          HttpHeaders.of(Map.of("Content-Type", List.of(CONTENT_TYPE)), (n, v) -> true),
+          Version.HTTP_1_1);
+
+  @Benchmark
+  public BodySubscriber<List<Map<String, Object>>> cachedLookup() {
+    return MoreBodyHandlers.ofObject(TYPE).apply(RESPONSE_INFO);
+  }
+
+  @Benchmark
+  public BodySubscriber<List<Map<String, Object>>> linearLookup() {
+    var mediaType = MediaType.parse(CONTENT_TYPE);
+    return Decoder.installed().stream()
+        .filter(d -> d.supportsType(TYPE) && d.isCompatibleWith(mediaType))
+        .findFirst()
+        .orElseThrow()
+        .toObject(TYPE, mediaType);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    var builder =
+        new OptionsBuilder()
+            .include(AdapterLookupBenchmark.class.getSimpleName())
+            .shouldFailOnError(true);
+    new Runner(builder.build()).run();
+  }
+}
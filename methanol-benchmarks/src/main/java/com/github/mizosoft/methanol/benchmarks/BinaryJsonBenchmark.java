@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.benchmarks;
+
+import static com.github.mizosoft.methanol.benchmarks.BenchmarkUtils.ARRAY_OF_OBJECTS;
+import static com.github.mizosoft.methanol.testutils.TestUtils.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.github.mizosoft.methanol.BodyAdapter.Decoder;
+import com.github.mizosoft.methanol.BodyAdapter.Encoder;
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.adapter.jackson.JacksonAdapterFactory;
+import com.github.mizosoft.methanol.testutils.BodyCollector;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Compares decoding & encoding the same payload as JSON against the binary Smile & CBOR. */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Threads(Threads.MAX)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@SuppressWarnings("unused")
+public class BinaryJsonBenchmark extends ClientServerLifecycle {
+
+  @Param({"JSON", "SMILE", "CBOR"})
+  private @MonotonicNonNull Format format;
+
+  private @MonotonicNonNull Encoder encoder;
+  private @MonotonicNonNull Decoder decoder;
+  private @MonotonicNonNull List<Map<String, Object>> value;
+
+  @Setup
+  public void setupAdapters() throws IOException {
+    var mapper = format.createMapper();
+    encoder = format.createEncoder(mapper);
+    decoder = format.createDecoder(mapper);
+    value = readPayload();
+  }
+
+  @Benchmark
+  public List<Map<String, Object>> decode() throws Exception {
+    return client
+        .send(defaultGet, info -> decoder.toObject(ARRAY_OF_OBJECTS, format.mediaType))
+        .body();
+  }
+
+  @Benchmark
+  public ByteBuffer encode() {
+    return BodyCollector.collect(encoder.toBody(value, format.mediaType));
+  }
+
+  @Override
+  public void configureServer(MockWebServer server) {
+    byte[] payload;
+    try {
+      payload = format.createMapper().writeValueAsBytes(readPayload());
+    } catch (IOException ioe) {
+      throw new IllegalStateException(ioe);
+    }
+    var body = new Buffer().write(payload);
+    server.setDispatcher(
+        new Dispatcher() {
+          @NotNull
+          @Override
+          public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) {
+            return new MockResponse()
+                .setHeader("Content-Type", format.mediaType.toString())
+                .setBody(body.clone());
+          }
+        });
+  }
+
+  private static List<Map<String, Object>> readPayload() throws IOException {
+    var jsonUtf8 = load(BinaryJsonBenchmark.class, "/payload/json_utf8.json");
+    var mapper = new JsonMapper();
+    return mapper.readValue(jsonUtf8, mapper.constructType(ARRAY_OF_OBJECTS.type()));
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    var builder =
+        new OptionsBuilder()
+            .include(BinaryJsonBenchmark.class.getSimpleName())
+            .shouldFailOnError(true);
+    new Runner(builder.build()).run();
+  }
+
+  public enum Format {
+    JSON(MediaType.APPLICATION_JSON) {
+      @Override
+      ObjectMapper createMapper() {
+        return new JsonMapper();
+      }
+
+      @Override
+      Encoder createEncoder(ObjectMapper mapper) {
+        return JacksonAdapterFactory.createEncoder(mapper);
+      }
+
+      @Override
+      Decoder createDecoder(ObjectMapper mapper) {
+        return JacksonAdapterFactory.createDecoder(mapper);
+      }
+    },
+    SMILE(MediaType.APPLICATION_X_JACKSON_SMILE) {
+      @Override
+      ObjectMapper createMapper() {
+        return new SmileMapper();
+      }
+
+      @Override
+      Encoder createEncoder(ObjectMapper mapper) {
+        return JacksonAdapterFactory.createSmileEncoder(mapper);
+      }
+
+      @Override
+      Decoder createDecoder(ObjectMapper mapper) {
+        return JacksonAdapterFactory.createSmileDecoder(mapper);
+      }
+    },
+    CBOR(MediaType.APPLICATION_CBOR) {
+      @Override
+      ObjectMapper createMapper() {
+        return new CBORMapper();
+      }
+
+      @Override
+      Encoder createEncoder(ObjectMapper mapper) {
+        return JacksonAdapterFactory.createCborEncoder(mapper);
+      }
+
+      @Override
+      Decoder createDecoder(ObjectMapper mapper) {
+        return JacksonAdapterFactory.createCborDecoder(mapper);
+      }
+    };
+
+    final MediaType mediaType;
+
+    Format(MediaType mediaType) {
+      this.mediaType = mediaType;
+    }
+
+    abstract ObjectMapper createMapper();
+
+    abstract Encoder createEncoder(ObjectMapper mapper);
+
+    abstract Decoder createDecoder(ObjectMapper mapper);
+  }
+}
@@ -23,10 +23,10 @@
 package com.github.mizosoft.methanol.benchmarks;
 
 import static com.github.mizosoft.methanol.testutils.TestUtils.load;
-import static java.nio.charset.StandardCharsets.UTF_16;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -66,6 +66,12 @@ public class Utf8CoercionBenchmark extends ClientServerLifecycle {
   @Param({"ASYNC_PARSER", "BYTE_ARRAY_PARSER"})
   private @MonotonicNonNull JsonHandler handler;
 
+  /** UTF-8 bodies are fed to the parser as received, others are coerced to UTF-8 first. */
+  @Param({"UTF-8", "UTF-16"})
+  private @MonotonicNonNull String charsetName;
+
+  private @MonotonicNonNull Charset charset;
+
   private @MonotonicNonNull JsonMapper mapper;
 
   @Setup
@@ -73,15 +79,20 @@ public class Utf8CoercionBenchmark extends ClientServerLifecycle {
     mapper = new JsonMapper();
   }
 
+  @Setup
+  public void setupCharset() {
+    charset = Charset.forName(charsetName);
+  }
+
   @Benchmark
   public List<Map<String, Object>> decodeJson() throws Exception {
-    return client.send(defaultGet, info -> handler.createSubscriber(mapper, UTF_16)).body();
+    return client.send(defaultGet, info -> handler.createSubscriber(mapper, charset)).body();
   }
 
   @Override
   public void configureServer(MockWebServer server) {
     var jsonUtf8 = load(Utf8CoercionBenchmark.class, "/payload/json_utf8.json");
-    var body = new Buffer().writeString(new String(jsonUtf8, UTF_8), UTF_16);
+    var body = new Buffer().writeString(new String(jsonUtf8, UTF_8), Charset.forName(charsetName));
     server.setDispatcher(
         new Dispatcher() {
           @NotNull
@@ -24,6 +24,7 @@ package com.github.mizosoft.methanol.adapter.gson;
 
 import static java.util.Objects.requireNonNull;
 
+import com.github.mizosoft.methanol.AggregatedBody;
 import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.MediaType;
 import com.github.mizosoft.methanol.MoreBodySubscribers;
@@ -32,8 +33,8 @@ import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
 import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonWriter;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
@@ -43,7 +44,15 @@ import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -99,8 +108,15 @@ abstract class GsonAdapter extends AbstractBodyAdapter {
 
   static final class Decoder extends GsonAdapter implements BodyAdapter.Decoder {
 
+    private final @Nullable Executor executor;
+
     Decoder(Gson gson) {
+      this(gson, null);
+    }
+
+    Decoder(Gson gson, @Nullable Executor executor) {
       super(gson);
+      this.executor = executor;
     }
 
     @Override
@@ -110,11 +126,13 @@ abstract class GsonAdapter extends AbstractBodyAdapter {
       requireCompatibleOrNull(mediaType);
       TypeAdapter<T> adapter = getAdapter(type);
       Charset charset = charsetOrUtf8(mediaType);
+      Executor executor = this.executor;
+      if (executor != null) {
+        return new StreamingSubscriber<>(
+            MoreBodySubscribers.ofReader(charset), in -> toJsonAndClose(in, adapter), executor);
+      }
       return BodySubscribers.mapping(
-          BodySubscribers.ofByteArray(),
-          bytes ->
-              toJsonUnchecked(
-                  new InputStreamReader(new ByteArrayInputStream(bytes), charset), adapter));
+          MoreBodySubscribers.ofAggregatedBody(), body -> toJsonUnchecked(body, charset, adapter));
     }
 
     @Override
@@ -129,6 +147,27 @@ abstract class GsonAdapter extends AbstractBodyAdapter {
           in -> () -> toJsonUnchecked(in, adapter));
     }
 
+    private <T> T toJsonUnchecked(AggregatedBody body, Charset charset, TypeAdapter<T> adapter) {
+      try (body;
+          Reader in = new InputStreamReader(body.inputStream(), charset)) {
+        return adapter.read(gson.newJsonReader(in));
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+
+    /**
+     * Parses the value then closes the reader, which cancels the body's upstream if it's not yet
+     * complete. This way, the download isn't carried on if parsing fails.
+     */
+    private <T> T toJsonAndClose(Reader in, TypeAdapter<T> adapter) {
+      try (in) {
+        return adapter.read(gson.newJsonReader(in));
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+
     private <T> T toJsonUnchecked(Reader in, TypeAdapter<T> adapter) {
       try {
         return adapter.read(gson.newJsonReader(in));
@@ -137,4 +176,62 @@ abstract class GsonAdapter extends AbstractBodyAdapter {
       }
     }
   }
+
+  /**
+   * A {@code BodySubscriber} that parses the body on an executor from a blocking source while the
+   * body is being received. The source is expected to complete immediately and bound how much of
+   * the body it buffers ahead of the parser (e.g. {@link MoreBodySubscribers#ofReader(Charset)}).
+   */
+  private static final class StreamingSubscriber<S extends Closeable, T>
+      implements BodySubscriber<T> {
+
+    private final BodySubscriber<S> downstream;
+    private final CompletionStage<T> body;
+
+    StreamingSubscriber(BodySubscriber<S> downstream, Function<S, T> parser, Executor executor) {
+      this.downstream = downstream;
+      // Parsing is started once so that the body isn't read concurrently by multiple parsers
+      this.body = downstream.getBody().thenCompose(source -> parseAsync(source, parser, executor));
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+      return body;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      downstream.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+      downstream.onNext(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      downstream.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      downstream.onComplete();
+    }
+
+    private static <S extends Closeable, T> CompletableFuture<T> parseAsync(
+        S source, Function<S, T> parser, Executor executor) {
+      try {
+        return CompletableFuture.supplyAsync(() -> parser.apply(source), executor);
+      } catch (RejectedExecutionException e) {
+        // Release the source as there's nothing to read it
+        try {
+          source.close();
+        } catch (IOException closeException) {
+          e.addSuppressed(closeException);
+        }
+        throw e;
+      }
+    }
+  }
 }
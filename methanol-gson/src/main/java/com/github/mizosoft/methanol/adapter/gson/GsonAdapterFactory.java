@@ -22,10 +22,13 @@
 
 package com.github.mizosoft.methanol.adapter.gson;
 
+import static java.util.Objects.requireNonNull;
+
 import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
 import com.github.mizosoft.methanol.BodyAdapter.Encoder;
 import com.google.gson.Gson;
+import java.util.concurrent.Executor;
 
 /** Provides {@link BodyAdapter} implementations for the JSON format using Gson. */
 public class GsonAdapterFactory {
@@ -51,4 +54,16 @@ public class GsonAdapterFactory {
   public static Decoder createDecoder(Gson gson) {
     return new GsonAdapter.Decoder(gson);
   }
+
+  /**
+   * Returns a {@code Decoder} that uses the given {@code Gson} instance and parses the response
+   * body on the given executor while it's being received. As Gson can't parse non-blockingly, the
+   * parser blocks on the executor waiting for the body's bytes, of which only a bounded amount is
+   * buffered ahead of the parser. The body is cancelled if parsing fails, and the parser is
+   * interrupted with an {@code IOException} if receiving the body fails. This only affects {@code
+   * toObject}, as {@code toDeferredObject} already parses the body as it's received.
+   */
+  public static Decoder createStreamingDecoder(Gson gson, Executor executor) {
+    return new GsonAdapter.Decoder(gson, requireNonNull(executor));
+  }
 }
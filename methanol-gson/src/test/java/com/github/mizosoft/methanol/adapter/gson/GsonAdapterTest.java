@@ -38,6 +38,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import com.github.mizosoft.methanol.MediaType;
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.testutils.BodyCollector;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
@@ -48,6 +49,9 @@ import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow.Subscription;
 import org.junit.jupiter.api.Test;
 
 class GsonAdapterTest {
@@ -195,6 +199,44 @@ class GsonAdapterTest {
     assertEquals(elon.age, 48);
   }
 
+  @Test
+  void deserializeJson_streaming() {
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var subscriber = GsonAdapterFactory.createStreamingDecoder(new Gson(), executor)
+          .toObject(new TypeRef<AwesomePerson>() {}, null);
+      subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+      subscriber.onNext(List.of(UTF_8.encode("{\"firstName\":\"Barack\",")));
+      subscriber.onNext(List.of(UTF_8.encode("\"lastName\":\"Obama\",")));
+      subscriber.onNext(List.of(UTF_8.encode("\"age\":58}")));
+      subscriber.onComplete();
+      var obama = subscriber.getBody().toCompletableFuture().join();
+      assertEquals(obama.firstName, "Barack");
+      assertEquals(obama.lastName, "Obama");
+      assertEquals(obama.age, 58);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void deserializeJson_streamingWithMalformedBody() {
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var subscriber = GsonAdapterFactory.createStreamingDecoder(new Gson(), executor)
+          .toObject(new TypeRef<AwesomePerson>() {}, null);
+      var subscription = new RecordingSubscription();
+      subscriber.onSubscribe(subscription);
+      subscriber.onNext(List.of(UTF_8.encode("{\"firstName\":]")));
+      // Upstream is cancelled without waiting for the body to complete
+      assertThrows(
+          CompletionException.class, () -> subscriber.getBody().toCompletableFuture().join());
+      assertTrue(subscription.cancelled);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test
   void deserializeJson_deferred() {
     var json = "{\"firstName\":\"Barack\",\"lastName\":\"Obama\",\"age\":58}";
@@ -245,6 +287,21 @@ class GsonAdapterTest {
     return subscriber.getBody().toCompletableFuture().join();
   }
 
+  private static final class RecordingSubscription implements Subscription {
+
+    volatile boolean cancelled;
+
+    RecordingSubscription() {}
+
+    @Override
+    public void request(long n) {}
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+
   private static class AwesomePerson {
 
     String firstName;
@@ -34,6 +34,7 @@ import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
 import com.github.mizosoft.methanol.adapter.jackson.internal.JacksonAdapterUtils;
 import com.github.mizosoft.methanol.adapter.jackson.internal.JacksonSubscriber;
+import com.github.mizosoft.methanol.adapter.jackson.internal.ReaderWriterCache;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
@@ -59,10 +60,21 @@ import reactor.core.publisher.MonoSink;
 abstract class JacksonFluxAdapter extends AbstractBodyAdapter {
 
   final ObjectMapper mapper;
+  final ReaderWriterCache cache;
 
   JacksonFluxAdapter(ObjectMapper mapper) {
     super(MediaType.APPLICATION_JSON);
     this.mapper = requireNonNull(mapper);
+    this.cache = new ReaderWriterCache(mapper);
+  }
+
+  /** Resolves and caches the reader or writer used for the given type ahead of its first use. */
+  abstract void prewarm(TypeRef<?> type);
+
+  static Type getFirstTypeArgumentOrParameter(Type type) {
+    return type instanceof ParameterizedType
+        ? ((ParameterizedType) type).getActualTypeArguments()[0]
+        : ((Class<?>) type).getTypeParameters()[0];
   }
 
   static final class Encoder extends JacksonFluxAdapter implements BodyAdapter.Encoder {
@@ -78,6 +90,14 @@ abstract class JacksonFluxAdapter extends AbstractBodyAdapter {
           || Flow.Publisher.class.isAssignableFrom(clazz);
     }
 
+    @Override
+    void prewarm(TypeRef<?> type) {
+      requireSupport(type);
+      // Only values of a Mono are encoded with writers, which are looked up by runtime class
+      cache.writerFor(
+          TypeRef.from(TypeRef.from(getFirstTypeArgumentOrParameter(type.type())).rawType()));
+    }
+
     @Override
     public BodyPublisher toBody(Object object, @Nullable MediaType mediaType) {
       requireNonNull(object);
@@ -101,7 +121,7 @@ abstract class JacksonFluxAdapter extends AbstractBodyAdapter {
     private ByteBuffer encodeValue(Object object, Charset charset) {
       ByteArrayOutputStream outputBuffer = new ByteArrayOutputStream();
       try (Writer writer = new OutputStreamWriter(outputBuffer, charset)) {
-        mapper.writeValue(writer, object);
+        cache.writerFor(TypeRef.from(object.getClass())).writeValue(writer, object);
       } catch (IOException ioe) {
         throw JacksonAdapterUtils.throwUnchecked(ioe);
       }
@@ -167,6 +187,12 @@ abstract class JacksonFluxAdapter extends AbstractBodyAdapter {
           || clazz == Flow.Publisher.class;
     }
 
+    @Override
+    void prewarm(TypeRef<?> type) {
+      requireSupport(type);
+      cache.readerFor(TypeRef.from(getFirstTypeArgumentOrParameter(type.type())));
+    }
+
     @Override
     public <T> BodySubscriber<T> toObject(TypeRef<T> type, @Nullable MediaType mediaType) {
       requireNonNull(type);
@@ -179,11 +205,13 @@ abstract class JacksonFluxAdapter extends AbstractBodyAdapter {
       if (rawPublisherType == Mono.class) {
         subscriber =
             MoreBodySubscribers.fromAsyncSubscriber(
-                new JacksonSubscriber<>(mapper, TypeRef.from(elementType), asyncParser),
+                new JacksonSubscriber<>(
+                    mapper, cache.readerFor(TypeRef.from(elementType)), asyncParser),
                 s -> CompletableFuture.completedStage(Mono.fromCompletionStage(s.getBody())));
       } else {
         JacksonFluxSubscriber<?> fluxSubscriber =
-            new JacksonFluxSubscriber<>(mapper, elementType, asyncParser);
+            new JacksonFluxSubscriber<>(
+                mapper, cache.readerFor(TypeRef.from(elementType)), asyncParser);
         subscriber =
             rawPublisherType == Flow.Publisher.class
                 ? BodySubscribers.mapping(fluxSubscriber, FlowAdapters::toFlowPublisher)
@@ -205,11 +233,5 @@ abstract class JacksonFluxAdapter extends AbstractBodyAdapter {
         throw new UnsupportedOperationException("couldn't create non-blocking parser", ioe);
       }
     }
-
-    private static Type getFirstTypeArgumentOrParameter(Type type) {
-      return type instanceof ParameterizedType
-          ? ((ParameterizedType) type).getActualTypeArguments()[0]
-          : ((Class<?>) type).getTypeParameters()[0];
-    }
   }
 }
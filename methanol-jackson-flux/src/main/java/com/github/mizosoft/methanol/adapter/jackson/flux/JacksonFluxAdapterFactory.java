@@ -22,11 +22,14 @@
 
 package com.github.mizosoft.methanol.adapter.jackson.flux;
 
+import static java.util.Objects.requireNonNull;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
 import com.github.mizosoft.methanol.BodyAdapter.Encoder;
+import com.github.mizosoft.methanol.TypeRef;
 
 /** Provides {@link BodyAdapter} implementations for the JSON format using Jackson. */
 public class JacksonFluxAdapterFactory {
@@ -52,5 +55,27 @@ public class JacksonFluxAdapterFactory {
   public static Decoder createDecoder(ObjectMapper mapper) {
     return new JacksonFluxAdapter.Decoder(mapper);
   }
+
+  /**
+   * Prepares the {@code ObjectReader} or {@code ObjectWriter} the given adapter uses for the
+   * elements of each of the given publisher types (e.g. {@code Flux<T>} or {@code Mono<T>}), so
+   * that the first request or response of each type doesn't pay for resolving the element type and
+   * constructing its reader or writer. Types beyond the adapter's cache capacity aren't retained.
+   *
+   * @param adapter an encoder or decoder created by this factory
+   * @param types the publisher types to prepare
+   * @throws IllegalArgumentException if the adapter wasn't created by this factory
+   * @throws UnsupportedOperationException if any of the given types isn't supported by the adapter
+   */
+  public static void prewarm(BodyAdapter adapter, TypeRef<?>... types) {
+    requireNonNull(adapter, "adapter");
+    requireNonNull(types, "types");
+    if (!(adapter instanceof JacksonFluxAdapter)) {
+      throw new IllegalArgumentException("not created by JacksonFluxAdapterFactory: " + adapter);
+    }
+    for (TypeRef<?> type : types) {
+      ((JacksonFluxAdapter) adapter).prewarm(requireNonNull(type, "type"));
+    }
+  }
 }
 
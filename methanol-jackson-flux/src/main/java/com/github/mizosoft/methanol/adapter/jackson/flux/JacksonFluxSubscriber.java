@@ -37,7 +37,6 @@ import com.github.mizosoft.methanol.adapter.jackson.internal.JacksonAdapterUtils
 import com.github.mizosoft.methanol.internal.flow.FlowSupport;
 import com.github.mizosoft.methanol.internal.flow.ForwardingSubscriber;
 import java.io.IOException;
-import java.lang.reflect.Type;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.BodySubscribers;
 import java.nio.ByteBuffer;
@@ -64,9 +63,9 @@ class JacksonFluxSubscriber<T> extends ForwardingSubscriber<List<ByteBuffer>>
   private final JsonParser parser;
   private final BodySubscriber<Publisher<List<ByteBuffer>>> downstream;
 
-  JacksonFluxSubscriber(ObjectMapper mapper, Type elementType, JsonParser parser) {
+  JacksonFluxSubscriber(ObjectMapper mapper, ObjectReader reader, JsonParser parser) {
     this.mapper = mapper;
-    this.reader = mapper.readerFor(mapper.constructType(elementType));
+    this.reader = reader;
     this.parser = parser;
     downstream = BodySubscribers.ofPublisher();
   }
@@ -33,34 +33,69 @@ import com.github.mizosoft.methanol.MediaType;
 import com.github.mizosoft.methanol.MoreBodySubscribers;
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
+import com.github.mizosoft.methanol.adapter.jackson.JacksonAdapterFactory.StreamingOptions;
+import com.github.mizosoft.methanol.adapter.jackson.internal.BlockingElementIterator;
 import com.github.mizosoft.methanol.adapter.jackson.internal.JacksonAdapterUtils;
+import com.github.mizosoft.methanol.adapter.jackson.internal.JacksonElementSubscriber;
 import com.github.mizosoft.methanol.adapter.jackson.internal.JacksonSubscriber;
+import com.github.mizosoft.methanol.adapter.jackson.internal.ReaderWriterCache;
+import com.github.mizosoft.methanol.adapter.jackson.internal.SerializingPublisher;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.Flow;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 abstract class JacksonAdapter extends AbstractBodyAdapter {
 
   final ObjectMapper mapper;
+  final ReaderWriterCache cache;
+  final boolean binary;
 
-  JacksonAdapter(ObjectMapper mapper) {
-    super(MediaType.APPLICATION_JSON);
+  JacksonAdapter(ObjectMapper mapper, MediaType mediaType) {
+    super(mediaType);
     this.mapper = requireNonNull(mapper);
+    this.cache = new ReaderWriterCache(mapper);
+    // Binary formats (e.g. Smile & CBOR) don't use the media type's charset
+    this.binary = mapper.getFactory().canHandleBinaryNatively();
   }
 
+  /** Returns the charset used for textual formats, which is always UTF-8 for binary formats. */
+  Charset charsetOf(@Nullable MediaType mediaType) {
+    return binary ? StandardCharsets.UTF_8 : charsetOrUtf8(mediaType);
+  }
+
+  /** Resolves and caches the reader or writer used for the given type ahead of its first use. */
+  abstract void prewarm(TypeRef<?> type);
+
   static final class Encoder extends JacksonAdapter implements BodyAdapter.Encoder {
 
-    Encoder(ObjectMapper mapper) {
-      super(mapper);
+    private final @Nullable StreamingOptions streamingOptions;
+
+    Encoder(ObjectMapper mapper, MediaType mediaType) {
+      this(mapper, mediaType, null);
+    }
+
+    Encoder(
+        ObjectMapper mapper, MediaType mediaType, @Nullable StreamingOptions streamingOptions) {
+      super(mapper, mediaType);
+      this.streamingOptions = streamingOptions;
     }
 
     @Override
@@ -68,12 +103,41 @@ abstract class JacksonAdapter extends AbstractBodyAdapter {
       return mapper.canSerialize(type.rawType());
     }
 
+    @Override
+    void prewarm(TypeRef<?> type) {
+      requireSupport(type);
+      // Writers are looked up by the runtime class of encoded objects
+      cache.writerFor(TypeRef.from(type.rawType()));
+    }
+
     @Override
     public BodyPublisher toBody(Object object, @Nullable MediaType mediaType) {
       requireNonNull(object);
       requireSupport(object.getClass());
       requireCompatibleOrNull(mediaType);
-      ObjectWriter objWriter = mapper.writerFor(object.getClass());
+      ObjectWriter objWriter = cache.writerFor(TypeRef.from(object.getClass()));
+      StreamingOptions options = streamingOptions;
+      if (options != null) {
+        return attachMediaType(
+            new SerializingPublisher(
+                objWriter,
+                object,
+                charsetOf(mediaType),
+                options.executor(),
+                options.bufferSize(),
+                options.writeAhead(),
+                options.recycleBuffers(),
+                options.computeContentLength()),
+            mediaType);
+      }
+      if (binary) {
+        try {
+          return attachMediaType(
+              BodyPublishers.ofByteArray(objWriter.writeValueAsBytes(object)), mediaType);
+        } catch (JsonProcessingException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
       ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
       try (Writer writer = new OutputStreamWriter(outBuffer, charsetOrUtf8(mediaType))) {
         objWriter.writeValue(writer, object);
@@ -88,15 +152,42 @@ abstract class JacksonAdapter extends AbstractBodyAdapter {
 
   static final class Decoder extends JacksonAdapter implements BodyAdapter.Decoder {
 
-    Decoder(ObjectMapper mapper) {
-      super(mapper);
+    /** Whether elements can be decoded as they're received, which needs a non-blocking parser. */
+    private final boolean canParseAsync;
+
+    Decoder(ObjectMapper mapper, MediaType mediaType) {
+      super(mapper, mediaType);
+      this.canParseAsync = mapper.getFactory().canParseAsync();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>In addition to types {@code ObjectMapper} can deserialize, a {@code Flow.Publisher<T>},
+     * {@code Stream<T>} or {@code Iterator<T>} of a deserializable {@code T} is supported if the
+     * mapper's format can be parsed asynchronously (e.g. not CBOR), in which case the elements of a
+     * top-level JSON array, or a sequence of top-level JSON values (e.g. newline-delimited JSON),
+     * are decoded one by one as they're consumed. Raw element streams, or ones whose element type
+     * is a type variable, aren't supported.
+     */
     @Override
     public boolean supportsType(TypeRef<?> type) {
+      if (isElementStream(type.rawType())) {
+        Type elementType = getElementType(type.type());
+        return canParseAsync
+            && elementType != null
+            && mapper.canDeserialize(mapper.constructType(elementType));
+      }
       return mapper.canDeserialize(mapper.constructType(type.type()));
     }
 
+    @Override
+    void prewarm(TypeRef<?> type) {
+      requireSupport(type);
+      cache.readerFor(
+          isElementStream(type.rawType()) ? TypeRef.from(requireElementType(type)) : type);
+    }
+
     @Override
     public <T> BodySubscriber<T> toObject(TypeRef<T> type, @Nullable MediaType mediaType) {
       requireNonNull(type);
@@ -105,13 +196,21 @@ abstract class JacksonAdapter extends AbstractBodyAdapter {
       JsonParser asyncParser;
       try {
         asyncParser = mapper.getFactory().createNonBlockingByteArrayParser();
-      } catch (IOException | UnsupportedOperationException ignored) {
+      } catch (IOException | UnsupportedOperationException e) {
+        if (isElementStream(type.rawType())) {
+          throw new UnsupportedOperationException("couldn't create non-blocking parser", e);
+        }
         // Fallback to de-serializing from byte array
         return BodySubscribers.mapping(
             BodySubscribers.ofByteArray(), bytes -> readValueUnchecked(type, bytes));
       }
-      return JacksonAdapterUtils.coerceUtf8(
-          new JacksonSubscriber<>(mapper, type, asyncParser), charsetOrUtf8(mediaType));
+      BodySubscriber<T> subscriber =
+          isElementStream(type.rawType())
+              ? toElementStream(type, asyncParser)
+              : new JacksonSubscriber<>(mapper, cache.readerFor(type), asyncParser);
+      return binary
+          ? subscriber
+          : JacksonAdapterUtils.coerceUtf8(subscriber, charsetOrUtf8(mediaType));
     }
 
     @Override
@@ -120,15 +219,51 @@ abstract class JacksonAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
+      if (isElementStream(type.rawType())) {
+        // Elements are decoded lazily anyways
+        return BodySubscribers.mapping(toObject(type, mediaType), body -> () -> body);
+      }
+      if (binary) {
+        return BodySubscribers.mapping(
+            BodySubscribers.ofInputStream(), in -> () -> readValueUnchecked(type, in));
+      }
       return BodySubscribers.mapping(
           MoreBodySubscribers.ofReader(charsetOrUtf8(mediaType)),
           reader -> () -> readValueUnchecked(type, reader));
     }
 
+    private <T> BodySubscriber<T> toElementStream(TypeRef<T> type, JsonParser asyncParser) {
+      TypeRef<?> elementType = TypeRef.from(requireElementType(type));
+      Class<? super T> rawType = type.rawType();
+      return BodySubscribers.mapping(
+          new JacksonElementSubscriber<>(mapper, cache.readerFor(elementType), asyncParser),
+          publisher -> {
+            Object body;
+            if (rawType == Stream.class) {
+              body = BlockingElementIterator.stream(publisher);
+            } else if (rawType == Iterator.class) {
+              body = BlockingElementIterator.iterate(publisher);
+            } else {
+              body = publisher;
+            }
+            @SuppressWarnings("unchecked")
+            T castBody = (T) body;
+            return castBody;
+          });
+    }
+
     private <T> T readValueUnchecked(TypeRef<T> type, byte[] body) {
       try {
         JsonParser parser = mapper.getFactory().createParser(body);
-        return mapper.readerFor(mapper.constructType(type.type())).readValue(parser);
+        return cache.readerFor(type).readValue(parser);
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+
+    private <T> T readValueUnchecked(TypeRef<T> type, InputStream in) {
+      try (in) {
+        return cache.readerFor(type).readValue(in);
       } catch (IOException ioe) {
         throw new UncheckedIOException(ioe);
       }
@@ -136,10 +271,42 @@ abstract class JacksonAdapter extends AbstractBodyAdapter {
 
     private <T> T readValueUnchecked(TypeRef<T> type, Reader reader) {
       try {
-        return mapper.readerFor(mapper.constructType(type.type())).readValue(reader);
+        return cache.readerFor(type).readValue(reader);
       } catch (IOException ioe) {
         throw new UncheckedIOException(ioe);
       }
     }
+
+    private static boolean isElementStream(Class<?> rawType) {
+      return rawType == Flow.Publisher.class
+          || rawType == Stream.class
+          || rawType == Iterator.class;
+    }
+
+    /**
+     * Returns the element type of a parameterized element stream type, or {@code null} if the type
+     * is raw or the element type is not concrete (i.e. it's a type variable).
+     */
+    private static @Nullable Type getElementType(Type type) {
+      if (!(type instanceof ParameterizedType)) {
+        return null;
+      }
+      Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+      if (elementType instanceof WildcardType) {
+        // Decode into the upper bound, which is Object for unbounded & lower-bounded wildcards
+        elementType = ((WildcardType) elementType).getUpperBounds()[0];
+      }
+      return elementType instanceof Class<?> || elementType instanceof ParameterizedType
+          ? elementType
+          : null;
+    }
+
+    private static Type requireElementType(TypeRef<?> type) {
+      Type elementType = getElementType(type.type());
+      if (elementType == null) {
+        throw new AssertionError("unsupported element stream type: " + type);
+      }
+      return elementType;
+    }
   }
 }
@@ -22,15 +22,28 @@
 
 package com.github.mizosoft.methanol.adapter.jackson;
 
+import static java.util.Objects.requireNonNull;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
 import com.github.mizosoft.methanol.BodyAdapter.Encoder;
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.TypeRef;
+import java.util.concurrent.Executor;
 
-/** Provides {@link BodyAdapter} implementations for the JSON format using Jackson. */
+/**
+ * Provides {@link BodyAdapter} implementations for the JSON format using Jackson. Adapters for
+ * the binary Smile and CBOR formats can also be created given mappers from the respective Jackson
+ * dataformat modules.
+ */
 public class JacksonAdapterFactory {
 
+  // Format names as reported by JsonFactory::getFormatName of the respective dataformat modules
+  private static final String SMILE_FORMAT_NAME = "Smile";
+  private static final String CBOR_FORMAT_NAME = "CBOR";
+
   private JacksonAdapterFactory() {} // non-instantiable
 
   /** Returns a {@code Encoder} that uses a default {@code ObjectMapper} instance. */
@@ -40,7 +53,29 @@ public class JacksonAdapterFactory {
 
   /** Returns a {@code Encoder} that uses the given {@code ObjectMapper} instance. */
   public static Encoder createEncoder(ObjectMapper mapper) {
-    return new JacksonAdapter.Encoder(mapper);
+    return new JacksonAdapter.Encoder(mapper, MediaType.APPLICATION_JSON);
+  }
+
+  /**
+   * Returns a {@code Encoder} that uses the given {@code ObjectMapper} instance and lazily
+   * serializes values on the given executor as the request body is consumed. This is equivalent
+   * to {@code createStreamingEncoder(mapper, StreamingOptions.newBuilder(executor).build())}.
+   */
+  public static Encoder createStreamingEncoder(ObjectMapper mapper, Executor executor) {
+    return createStreamingEncoder(mapper, StreamingOptions.newBuilder(executor).build());
+  }
+
+  /**
+   * Returns a {@code Encoder} that uses the given {@code ObjectMapper} instance and lazily
+   * serializes values as the request body is consumed. Instead of serializing a value into memory
+   * when the body is created, serialization runs on the {@link StreamingOptions#executor()
+   * executor} for each subscription to the body, writing into buffers that are published as
+   * they're filled. Serialization blocks when {@link StreamingOptions#writeAhead() writeAhead}
+   * buffers are pending consumption, so memory usage is bounded regardless of the value's size.
+   */
+  public static Encoder createStreamingEncoder(ObjectMapper mapper, StreamingOptions options) {
+    return new JacksonAdapter.Encoder(
+        mapper, MediaType.APPLICATION_JSON, requireNonNull(options));
   }
 
   /** Returns a {@code Decoder} that uses a default {@code ObjectMapper} instance. */
@@ -50,6 +85,206 @@ public class JacksonAdapterFactory {
 
   /** Returns a {@code Decoder} that uses the given {@code ObjectMapper} instance. */
   public static Decoder createDecoder(ObjectMapper mapper) {
-    return new JacksonAdapter.Decoder(mapper);
+    return new JacksonAdapter.Decoder(mapper, MediaType.APPLICATION_JSON);
+  }
+
+  /**
+   * Returns a {@code Encoder} for the {@code application/x-jackson-smile} media type that uses
+   * the given Smile {@code ObjectMapper} instance (e.g. a {@code SmileMapper}).
+   *
+   * @throws IllegalArgumentException if the mapper's format isn't Smile
+   */
+  public static Encoder createSmileEncoder(ObjectMapper mapper) {
+    requireFormat(mapper, SMILE_FORMAT_NAME);
+    return new JacksonAdapter.Encoder(mapper, MediaType.APPLICATION_X_JACKSON_SMILE);
+  }
+
+  /**
+   * Returns a {@code Decoder} for the {@code application/x-jackson-smile} media type that uses
+   * the given Smile {@code ObjectMapper} instance (e.g. a {@code SmileMapper}). Like JSON, Smile
+   * responses are parsed in a non-blocking manner as they're received.
+   *
+   * @throws IllegalArgumentException if the mapper's format isn't Smile
+   */
+  public static Decoder createSmileDecoder(ObjectMapper mapper) {
+    requireFormat(mapper, SMILE_FORMAT_NAME);
+    return new JacksonAdapter.Decoder(mapper, MediaType.APPLICATION_X_JACKSON_SMILE);
+  }
+
+  /**
+   * Returns a {@code Encoder} for the {@code application/cbor} media type that uses the given
+   * CBOR {@code ObjectMapper} instance (e.g. a {@code CBORMapper}).
+   *
+   * @throws IllegalArgumentException if the mapper's format isn't CBOR
+   */
+  public static Encoder createCborEncoder(ObjectMapper mapper) {
+    requireFormat(mapper, CBOR_FORMAT_NAME);
+    return new JacksonAdapter.Encoder(mapper, MediaType.APPLICATION_CBOR);
+  }
+
+  /**
+   * Returns a {@code Decoder} for the {@code application/cbor} media type that uses the given
+   * CBOR {@code ObjectMapper} instance (e.g. a {@code CBORMapper}). If the mapper doesn't support
+   * non-blocking parsing, responses are buffered into memory before being decoded.
+   *
+   * @throws IllegalArgumentException if the mapper's format isn't CBOR
+   */
+  public static Decoder createCborDecoder(ObjectMapper mapper) {
+    requireFormat(mapper, CBOR_FORMAT_NAME);
+    return new JacksonAdapter.Decoder(mapper, MediaType.APPLICATION_CBOR);
+  }
+
+  /**
+   * Prepares the {@code ObjectReader} or {@code ObjectWriter} the given adapter uses for each of
+   * the given types, so that the first request or response of each type doesn't pay for resolving
+   * the type and constructing its reader or writer. For a {@code Flow.Publisher<T>}, {@code
+   * Stream<T>} or {@code Iterator<T>} decoded by a decoder, the reader for {@code T} is prepared.
+   * Types beyond the adapter's cache capacity aren't retained.
+   *
+   * @param adapter an encoder or decoder created by this factory
+   * @param types the types to prepare
+   * @throws IllegalArgumentException if the adapter wasn't created by this factory
+   * @throws UnsupportedOperationException if any of the given types isn't supported by the adapter
+   */
+  public static void prewarm(BodyAdapter adapter, TypeRef<?>... types) {
+    requireNonNull(adapter, "adapter");
+    requireNonNull(types, "types");
+    if (!(adapter instanceof JacksonAdapter)) {
+      throw new IllegalArgumentException("not created by JacksonAdapterFactory: " + adapter);
+    }
+    for (TypeRef<?> type : types) {
+      ((JacksonAdapter) adapter).prewarm(requireNonNull(type, "type"));
+    }
+  }
+
+  private static void requireFormat(ObjectMapper mapper, String formatName) {
+    String actualFormatName = mapper.getFactory().getFormatName();
+    if (!formatName.equals(actualFormatName)) {
+      throw new IllegalArgumentException(
+          "expected a " + formatName + " mapper, found: " + actualFormatName);
+    }
+  }
+
+  /**
+   * Options for encoders created with {@link #createStreamingEncoder(ObjectMapper,
+   * StreamingOptions)}.
+   */
+  public static final class StreamingOptions {
+
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024; // 16Kb
+    private static final int DEFAULT_WRITE_AHEAD = 4;
+
+    private final Executor executor;
+    private final int bufferSize;
+    private final int writeAhead;
+    private final boolean recycleBuffers;
+    private final boolean computeContentLength;
+
+    private StreamingOptions(Builder builder) {
+      executor = builder.executor;
+      bufferSize = builder.bufferSize;
+      writeAhead = builder.writeAhead;
+      recycleBuffers = builder.recycleBuffers;
+      computeContentLength = builder.computeContentLength;
+    }
+
+    /** Returns the executor on which values are serialized. */
+    public Executor executor() {
+      return executor;
+    }
+
+    /** Returns the size of each published buffer. */
+    public int bufferSize() {
+      return bufferSize;
+    }
+
+    /** Returns the maximum number of buffers written ahead of downstream demand. */
+    public int writeAhead() {
+      return writeAhead;
+    }
+
+    /** Returns whether buffers fully consumed by the subscriber are reused for later writes. */
+    public boolean recycleBuffers() {
+      return recycleBuffers;
+    }
+
+    /** Returns whether the body's content length is computed before it's sent. */
+    public boolean computeContentLength() {
+      return computeContentLength;
+    }
+
+    /** Returns a new {@code StreamingOptions.Builder} with the given executor. */
+    public static Builder newBuilder(Executor executor) {
+      return new Builder(executor);
+    }
+
+    /** A builder of {@code StreamingOptions}. */
+    public static final class Builder {
+
+      private final Executor executor;
+      private int bufferSize;
+      private int writeAhead;
+      private boolean recycleBuffers;
+      private boolean computeContentLength;
+
+      Builder(Executor executor) {
+        this.executor = requireNonNull(executor);
+        bufferSize = DEFAULT_BUFFER_SIZE;
+        writeAhead = DEFAULT_WRITE_AHEAD;
+      }
+
+      /**
+       * Sets the size of each published buffer. The default is 16Kb.
+       *
+       * @throws IllegalArgumentException if size is not positive
+       */
+      public Builder bufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+          throw new IllegalArgumentException("non-positive buffer size: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        return this;
+      }
+
+      /**
+       * Sets the maximum number of buffers written ahead of downstream demand. The default is 4.
+       *
+       * @throws IllegalArgumentException if {@code writeAhead} is not positive
+       */
+      public Builder writeAhead(int writeAhead) {
+        if (writeAhead <= 0) {
+          throw new IllegalArgumentException("non-positive write ahead: " + writeAhead);
+        }
+        this.writeAhead = writeAhead;
+        return this;
+      }
+
+      /**
+       * If set to {@code true}, buffers that are fully consumed by the subscriber by the time it
+       * requests more are reused for later writes instead of allocating new ones. Only enable this
+       * if the subscriber doesn't retain published buffers after consuming them. The default is
+       * {@code false}.
+       */
+      public Builder recycleBuffers(boolean recycleBuffers) {
+        this.recycleBuffers = recycleBuffers;
+        return this;
+      }
+
+      /**
+       * If set to {@code true}, the body's content length is computed by serializing the value
+       * once, discarding the output, so that the request is sent with a {@code Content-Length}
+       * rather than chunked. This doubles serialization work, so it's only worthwhile for values
+       * that are cheap to serialize. The default is {@code false}.
+       */
+      public Builder computeContentLength(boolean computeContentLength) {
+        this.computeContentLength = computeContentLength;
+        return this;
+      }
+
+      /** Builds a new {@code StreamingOptions}. */
+      public StreamingOptions build() {
+        return new StreamingOptions(this);
+      }
+    }
   }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson;
+
+import static java.util.Objects.requireNonNull;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.github.mizosoft.methanol.TypeRef;
+import com.github.mizosoft.methanol.adapter.jackson.internal.ProjectingSubscriber;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Provides {@code BodySubscriber} implementations that decode only a projection of a JSON body.
+ * Subtrees outside the projection are skipped as they're parsed, without being buffered or bound,
+ * and the body is cancelled as soon as all projected values have been seen, so the rest of the
+ * response isn't even downloaded. The body is expected to be UTF-8 encoded, as required by RFC
+ * 8259.
+ */
+public class JacksonProjections {
+
+  private JacksonProjections() {} // non-instantiable
+
+  /**
+   * Returns a {@code BodySubscriber} of a tree containing only the values at the given JSON
+   * Pointer paths. The returned tree mirrors the structure of the document along these paths, so
+   * a projected value can be retrieved with {@link JsonNode#at(String)} using its path. Paths
+   * that are not present in the document are missing from the tree. If only the root is
+   * projected (i.e. {@code ""} is among the paths), the whole document is decoded.
+   *
+   * @throws IllegalArgumentException if any of the paths is not a valid JSON Pointer
+   */
+  public static BodySubscriber<JsonNode> ofPaths(ObjectMapper mapper, Collection<String> paths) {
+    requireNonNull(mapper);
+    List<JsonPointer> pointers = new ArrayList<>(paths.size());
+    for (String path : paths) {
+      pointers.add(JsonPointer.compile(path));
+    }
+    return new ProjectingSubscriber(mapper, createAsyncParser(mapper), pointers);
+  }
+
+  /**
+   * Returns a {@code BodySubscriber} that decodes the given view type from the document's
+   * top-level properties that the view type can deserialize, skipping all other properties.
+   */
+  public static <T> BodySubscriber<T> ofView(ObjectMapper mapper, TypeRef<T> viewType) {
+    requireNonNull(mapper);
+    requireNonNull(viewType);
+    JavaType javaType = mapper.constructType(viewType.type());
+    BeanDescription description = mapper.getDeserializationConfig().introspect(javaType);
+    List<JsonPointer> pointers = new ArrayList<>();
+    for (BeanPropertyDefinition property : description.findProperties()) {
+      if (property.couldDeserialize()) {
+        pointers.add(JsonPointer.compile("/" + escape(property.getName())));
+      }
+    }
+    ObjectReader objReader = mapper.readerFor(javaType);
+    return BodySubscribers.mapping(
+        new ProjectingSubscriber(mapper, createAsyncParser(mapper), pointers),
+        tree -> readValueUnchecked(objReader, tree));
+  }
+
+  private static JsonParser createAsyncParser(ObjectMapper mapper) {
+    try {
+      return mapper.getFactory().createNonBlockingByteArrayParser();
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  private static <T> T readValueUnchecked(ObjectReader objReader, JsonNode tree) {
+    try {
+      return objReader.readValue(tree);
+    } catch (IOException ioe) {
+      throw new UncheckedIOException(ioe);
+    }
+  }
+
+  /** Escapes a property name to be used as a JSON Pointer segment as per RFC 6901. */
+  private static String escape(String name) {
+    return name.replace("~", "~0").replace("/", "~1");
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.Prefetcher;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An {@code Iterator} over a publisher's elements that blocks till each element is received.
+ * Elements are requested a few at a time as they're consumed.
+ */
+public final class BlockingElementIterator<T> implements Iterator<T>, Subscriber<T> {
+
+  private static final Object COMPLETE = new Object();
+
+  private final BlockingQueue<Object> signals;
+  private final Upstream upstream;
+  private final Prefetcher prefetcher;
+  private @Nullable Object nextSignal;
+
+  private BlockingElementIterator() {
+    signals = new LinkedBlockingQueue<>();
+    upstream = new Upstream();
+    prefetcher = new Prefetcher();
+  }
+
+  @Override
+  public boolean hasNext() {
+    Object signal = nextSignal;
+    if (signal == null) {
+      try {
+        signal = signals.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new UncheckedIOException(new InterruptedIOException("interrupted while waiting"));
+      }
+      nextSignal = signal;
+    }
+
+    if (signal == COMPLETE) {
+      return false;
+    } else if (signal instanceof ErrorSignal) {
+      Throwable error = ((ErrorSignal) signal).error;
+      if (error instanceof IOException) {
+        throw new UncheckedIOException((IOException) error);
+      }
+      throw JacksonAdapterUtils.throwUnchecked(error);
+    }
+    return true;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    @SuppressWarnings("unchecked")
+    T element = (T) requireNonNull(nextSignal);
+    nextSignal = null;
+    prefetcher.update(upstream);
+    return element;
+  }
+
+  /** Cancels the subscription to the publisher. */
+  public void close() {
+    upstream.cancel();
+  }
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    requireNonNull(subscription);
+    if (upstream.setOrCancel(subscription)) {
+      prefetcher.initialize(upstream);
+    }
+  }
+
+  @Override
+  public void onNext(T item) {
+    requireNonNull(item);
+    signals.add(item);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    requireNonNull(throwable);
+    upstream.clear();
+    signals.add(new ErrorSignal(throwable));
+  }
+
+  @Override
+  public void onComplete() {
+    upstream.clear();
+    signals.add(COMPLETE);
+  }
+
+  /** Returns an iterator over the given publisher's elements. */
+  public static <T> BlockingElementIterator<T> iterate(Publisher<T> publisher) {
+    BlockingElementIterator<T> iterator = new BlockingElementIterator<>();
+    publisher.subscribe(iterator);
+    return iterator;
+  }
+
+  /**
+   * Returns a sequential stream of the given publisher's elements. Closing the stream cancels the
+   * subscription to the publisher.
+   */
+  public static <T> Stream<T> stream(Publisher<T> publisher) {
+    BlockingElementIterator<T> iterator = iterate(publisher);
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(
+                iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(iterator::close);
+  }
+
+  private static final class ErrorSignal {
+
+    final Throwable error;
+
+    ErrorSignal(Throwable error) {
+      this.error = error;
+    }
+  }
+}
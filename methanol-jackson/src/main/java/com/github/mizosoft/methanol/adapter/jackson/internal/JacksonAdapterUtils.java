@@ -22,11 +22,14 @@
 
 package com.github.mizosoft.methanol.adapter.jackson.internal;
 
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import java.io.IOException;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class JacksonAdapterUtils {
 
@@ -44,6 +47,29 @@ public class JacksonAdapterUtils {
     return bytes;
   }
 
+  /**
+   * Feeds the buffer's remaining bytes to the given feeder, in place if the buffer is backed by an
+   * accessible array or otherwise through the given scratch array, which is returned after being
+   * reallocated if too small. The feeder must have consumed its previous input.
+   */
+  public static byte @Nullable [] feedInput(
+      ByteArrayFeeder feeder, ByteBuffer buffer, byte @Nullable [] scratch) throws IOException {
+    int remaining = buffer.remaining();
+    if (buffer.hasArray()) {
+      int start = buffer.arrayOffset() + buffer.position();
+      feeder.feedInput(buffer.array(), start, start + remaining);
+      return scratch;
+    }
+
+    byte[] bytes = scratch;
+    if (bytes == null || bytes.length < remaining) {
+      bytes = new byte[remaining];
+    }
+    buffer.get(bytes, 0, remaining);
+    feeder.feedInput(bytes, 0, remaining);
+    return bytes;
+  }
+
   /** Used when the exception is not handled structurally to avoid unchecked wrapping. */
   @SuppressWarnings({"unchecked", "TypeParameterUnusedInFormals"})
   public static <X extends Throwable> X throwUnchecked(Throwable t) throws X {
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson.internal;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.NOT_AVAILABLE;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.mizosoft.methanol.internal.flow.AbstractElementSubscriber;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@code BodySubscriber} that decodes the elements of a top-level JSON array, or a sequence of
+ * top-level JSON values (e.g. newline-delimited JSON), into a {@code Publisher}. Elements are
+ * decoded as they're requested, and the body is requested from upstream only as much as needed to
+ * satisfy downstream demand. {@code null} elements are skipped. Cancelling the returned publisher's
+ * subscription cancels the body.
+ */
+public final class JacksonElementSubscriber<T> extends AbstractElementSubscriber<T> {
+
+  private final ObjectMapper mapper;
+  private final ObjectReader objReader;
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+
+  // Parsing state, accessed only within decodeNext
+  private @Nullable TokenBuffer currentTokenBuffer;
+  private int arrayDepth;
+  private int objectDepth;
+  private boolean endOfInputFed;
+  private boolean parsed;
+  private byte @Nullable [] scratch;
+
+  public JacksonElementSubscriber(ObjectMapper mapper, ObjectReader objReader, JsonParser parser) {
+    this.mapper = mapper;
+    this.objReader = objReader;
+    this.parser = parser;
+    feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+  }
+
+  @Override
+  protected @Nullable T decodeNext() throws IOException {
+    while (true) {
+      TokenBuffer tokenBuffer = nextTokenizedElement();
+      if (tokenBuffer != null) {
+        T element = objReader.readValue(tokenBuffer.asParser(mapper));
+        if (element != null) {
+          return element;
+        }
+      } else if (parsed || !feedNextInput()) {
+        return null;
+      }
+    }
+  }
+
+  /** Feeds the parser with the next input if available or ends input if upstream completed. */
+  private boolean feedNextInput() throws IOException {
+    ByteBuffer buffer = pollInput();
+    if (buffer != null) {
+      // The parser is done with the previous input when it asks for more, so scratch can be
+      // safely reused.
+      scratch = JacksonAdapterUtils.feedInput(feeder, buffer, scratch);
+      return true;
+    } else if (isEndOfInput() && !endOfInputFed) {
+      endOfInputFed = true;
+      feeder.endOfInput();
+      return true;
+    }
+    return false;
+  }
+
+  /** Returns the tokens of the next element if available. */
+  private @Nullable TokenBuffer nextTokenizedElement() throws IOException {
+    while (true) {
+      JsonToken token = parser.nextToken();
+      if (token == null) {
+        parsed = true;
+        return null;
+      } else if (token == NOT_AVAILABLE) {
+        return null;
+      }
+
+      switch (token) {
+        case START_ARRAY:
+          arrayDepth++;
+          break;
+        case END_ARRAY:
+          arrayDepth--;
+          break;
+        case START_OBJECT:
+          objectDepth++;
+          break;
+        case END_OBJECT:
+          objectDepth--;
+          break;
+        default:
+          break;
+      }
+
+      // Copy everything but the brackets of a top-level array
+      if (objectDepth > 0
+          || ((token != START_ARRAY || arrayDepth > 1)
+              && (token != END_ARRAY || arrayDepth >= 1))) {
+        TokenBuffer tokenBuffer = currentTokenBuffer;
+        if (tokenBuffer == null) {
+          tokenBuffer = new TokenBuffer(parser);
+          currentTokenBuffer = tokenBuffer;
+        }
+        tokenBuffer.copyCurrentEvent(parser);
+      }
+
+      // An element is complete when a direct child of the document or its array ends
+      if (objectDepth == 0 && arrayDepth <= 1 && (token.isScalarValue() || token.isStructEnd())) {
+        TokenBuffer finished = currentTokenBuffer;
+        currentTokenBuffer = null;
+        if (finished != null) {
+          return finished;
+        }
+      }
+    }
+  }
+}
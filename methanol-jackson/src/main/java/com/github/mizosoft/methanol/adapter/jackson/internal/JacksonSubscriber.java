@@ -30,7 +30,6 @@ import com.fasterxml.jackson.core.async.ByteArrayFeeder;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.util.TokenBuffer;
-import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.internal.flow.Prefetcher;
 import com.github.mizosoft.methanol.internal.flow.Upstream;
 import java.io.IOException;
@@ -40,7 +39,17 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+/**
+ * A {@code BodySubscriber} that decodes the body with a non-blocking parser. Each received buffer
+ * is fed to the parser as it arrives, in place if it's backed by an accessible array, and the
+ * parsed tokens are recorded into a {@code TokenBuffer}. The value is bound from the recorded
+ * tokens when the body completes, as databind can't bind from a parser that runs out of input
+ * midway through a value. This way, parsing overlaps receiving the body, received buffers aren't
+ * retained, and malformed input fails the body (and cancels the upstream) as soon as it's
+ * encountered.
+ */
 public final class JacksonSubscriber<T> implements BodySubscriber<T> {
 
   private final ObjectMapper mapper;
@@ -52,12 +61,15 @@ public final class JacksonSubscriber<T> implements BodySubscriber<T> {
   private final Upstream upstream;
   private final Prefetcher prefetcher;
 
-  public JacksonSubscriber(ObjectMapper mapper, TypeRef<T> type, JsonParser parser) {
+  /** Used for feeding buffers that are not backed by an accessible array. */
+  private byte @Nullable [] scratch;
+
+  public JacksonSubscriber(ObjectMapper mapper, ObjectReader objReader, JsonParser parser) {
     this.mapper = mapper;
-    this.objReader = mapper.readerFor(mapper.constructType(type.type()));
+    this.objReader = objReader;
     this.parser = parser;
     feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
-    tokenBuffer = new TokenBuffer(this.parser);
+    tokenBuffer = new TokenBuffer(parser);
     valueFuture = new CompletableFuture<>();
     upstream = new Upstream();
     prefetcher = new Prefetcher();
@@ -79,13 +91,22 @@ public final class JacksonSubscriber<T> implements BodySubscriber<T> {
   @Override
   public void onNext(List<ByteBuffer> item) {
     requireNonNull(item);
-    byte[] bytes = JacksonAdapterUtils.collectBytes(item);
+    if (valueFuture.isDone()) { // failed
+      return;
+    }
+
     try {
-      feeder.feedInput(bytes, 0, bytes.length);
-      flushParser();
+      for (ByteBuffer buffer : item) {
+        if (buffer.hasRemaining()) {
+          // The parser consumes all its input before returning NOT_AVAILABLE, so neither the
+          // buffer nor scratch is referenced after flushParser() returns.
+          scratch = JacksonAdapterUtils.feedInput(feeder, buffer, scratch);
+          flushParser();
+        }
+      }
     } catch (Throwable t) {
-      valueFuture.completeExceptionally(t);
       upstream.cancel();
+      valueFuture.completeExceptionally(t);
       return;
     }
     prefetcher.update(upstream);
@@ -101,6 +122,10 @@ public final class JacksonSubscriber<T> implements BodySubscriber<T> {
   @Override
   public void onComplete() {
     upstream.clear();
+    if (valueFuture.isDone()) { // failed
+      return;
+    }
+
     feeder.endOfInput();
     try {
       flushParser();
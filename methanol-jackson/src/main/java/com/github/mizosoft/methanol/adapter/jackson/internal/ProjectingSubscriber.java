@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.mizosoft.methanol.internal.flow.Prefetcher;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@code BodySubscriber} that decodes only the values at a set of JSON Pointer paths into a
+ * tree that otherwise mirrors the structure of the document. Subtrees outside the projection are
+ * skipped by the non-blocking parser without being buffered or bound, and the body is cancelled as
+ * soon as all paths have been seen.
+ */
+public final class ProjectingSubscriber implements BodySubscriber<JsonNode> {
+
+  private final ObjectMapper mapper;
+  private final JsonParser parser;
+  private final ByteArrayFeeder feeder;
+  private final PathNode projection;
+  private final CompletableFuture<JsonNode> resultFuture;
+  private final Upstream upstream;
+  private final Prefetcher prefetcher;
+
+  // Parsing state, accessed only within onNext & onComplete
+  private final ArrayDeque<Frame> frames;
+  private int remainingPaths;
+  private @Nullable PathNode fieldNode;
+  private @Nullable String fieldName;
+  private int skipDepth;
+  private @Nullable Capture capture;
+  private @Nullable JsonNode result;
+  private boolean rootSeen;
+  private boolean done;
+  private byte @Nullable [] scratch;
+
+  public ProjectingSubscriber(
+      ObjectMapper mapper, JsonParser parser, Collection<JsonPointer> paths) {
+    this.mapper = mapper;
+    this.parser = parser;
+    feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    projection = PathNode.of(paths);
+    remainingPaths = projection.countTerminals();
+    resultFuture = new CompletableFuture<>();
+    upstream = new Upstream();
+    prefetcher = new Prefetcher();
+    frames = new ArrayDeque<>();
+  }
+
+  @Override
+  public CompletionStage<JsonNode> getBody() {
+    return resultFuture;
+  }
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    requireNonNull(subscription);
+    if (remainingPaths == 0) {
+      subscription.cancel(); // nothing to look for
+      done = true;
+      resultFuture.complete(mapper.createObjectNode());
+    } else if (upstream.setOrCancel(subscription)) {
+      prefetcher.initialize(upstream);
+    }
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> item) {
+    requireNonNull(item);
+    if (done) {
+      return;
+    }
+
+    try {
+      for (ByteBuffer buffer : item) {
+        if (buffer.hasRemaining()) {
+          scratch = JacksonAdapterUtils.feedInput(feeder, buffer, scratch);
+          // Buffers are fed in place, so they're drained before feeding the next one
+          if (processTokens()) {
+            upstream.cancel(); // all paths were seen
+            complete();
+            return;
+          }
+        }
+      }
+    } catch (Throwable t) {
+      done = true;
+      upstream.cancel();
+      resultFuture.completeExceptionally(t);
+      return;
+    }
+    prefetcher.update(upstream);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    requireNonNull(throwable);
+    upstream.clear();
+    if (!done) {
+      done = true;
+      resultFuture.completeExceptionally(throwable);
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    upstream.clear();
+    if (!done) {
+      try {
+        feeder.endOfInput();
+        processTokens();
+        complete();
+      } catch (Throwable t) {
+        done = true;
+        resultFuture.completeExceptionally(t);
+      }
+    }
+  }
+
+  private void complete() {
+    done = true;
+    JsonNode node = result;
+    resultFuture.complete(node != null ? node : mapper.createObjectNode());
+  }
+
+  /** Processes available tokens, returning {@code true} if all paths have been seen. */
+  private boolean processTokens() throws IOException {
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+      if (processToken(token) && remainingPaths == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Processes the current token, returning {@code true} if it completed a captured value. */
+  private boolean processToken(JsonToken token) throws IOException {
+    Capture currentCapture = capture;
+    if (currentCapture != null) {
+      if (!currentCapture.append(parser, token)) {
+        return false;
+      }
+      capture = null;
+      captured(currentCapture);
+      return true;
+    } else if (skipDepth > 0) {
+      if (token.isStructStart()) {
+        skipDepth++;
+      } else if (token.isStructEnd()) {
+        skipDepth--;
+      }
+      return false;
+    } else if (token == JsonToken.FIELD_NAME) {
+      Frame frame = requireNonNull(frames.peek());
+      String name = parser.getCurrentName();
+      fieldName = name;
+      fieldNode = frame.node.child(name);
+      return false;
+    } else if (token.isStructEnd()) {
+      frames.pop();
+      return false;
+    }
+
+    // Resolve the projection node of this value
+    Frame parent = frames.peek();
+    @Nullable PathNode node;
+    @Nullable String segment;
+    if (parent == null) { // only the first root value is considered
+      node = rootSeen ? null : projection;
+      segment = null;
+      rootSeen = true;
+    } else if (parent.isArray) {
+      segment = Integer.toString(parent.nextIndex++);
+      node = parent.node.child(segment);
+    } else {
+      segment = fieldName;
+      node = fieldNode;
+    }
+
+    if (node == null) { // outside the projection
+      if (token.isStructStart()) {
+        skipDepth = 1;
+      }
+    } else if (node.terminal) {
+      Capture newCapture = new Capture(segment, new TokenBuffer(parser));
+      if (newCapture.append(parser, token)) {
+        captured(newCapture);
+        return true;
+      }
+      capture = newCapture;
+    } else if (token.isStructStart()) {
+      frames.push(new Frame(node, segment, token == JsonToken.START_ARRAY));
+    }
+    return false;
+  }
+
+  private void captured(Capture completedCapture) throws IOException {
+    insert(completedCapture.segment, mapper.readTree(completedCapture.tokens.asParser(mapper)));
+    remainingPaths--;
+  }
+
+  /** Inserts the value at the current path, creating the containers leading to it as needed. */
+  private void insert(@Nullable String segment, JsonNode value) {
+    if (frames.isEmpty()) { // the root itself is projected
+      result = value;
+      return;
+    }
+
+    Iterator<Frame> path = frames.descendingIterator(); // root first
+    JsonNode container = result;
+    if (container == null) {
+      container = path.next().newContainer(mapper);
+      result = container;
+    } else {
+      path.next();
+    }
+    while (path.hasNext()) {
+      Frame frame = path.next();
+      String frameSegment = requireNonNull(frame.segment);
+      JsonNode child = get(container, frameSegment);
+      if (child == null) {
+        child = frame.newContainer(mapper);
+        set(container, frameSegment, child);
+      }
+      container = child;
+    }
+    set(container, requireNonNull(segment), value);
+  }
+
+  private static @Nullable JsonNode get(JsonNode container, String segment) {
+    JsonNode child =
+        container.isArray() ? container.get(Integer.parseInt(segment)) : container.get(segment);
+    return child == null || child.isNull() ? null : child;
+  }
+
+  private static void set(JsonNode container, String segment, JsonNode value) {
+    if (container.isArray()) {
+      ArrayNode array = (ArrayNode) container;
+      int index = Integer.parseInt(segment);
+      while (array.size() <= index) {
+        array.addNull();
+      }
+      array.set(index, value);
+    } else {
+      ((ObjectNode) container).set(segment, value);
+    }
+  }
+
+  /** An object or array on the path to projected values. */
+  private static final class Frame {
+
+    final PathNode node;
+    final @Nullable String segment;
+    final boolean isArray;
+    int nextIndex;
+
+    Frame(PathNode node, @Nullable String segment, boolean isArray) {
+      this.node = node;
+      this.segment = segment;
+      this.isArray = isArray;
+    }
+
+    JsonNode newContainer(ObjectMapper mapper) {
+      return isArray ? mapper.createArrayNode() : mapper.createObjectNode();
+    }
+  }
+
+  /** A projected value whose tokens are being collected. */
+  private static final class Capture {
+
+    final @Nullable String segment;
+    final TokenBuffer tokens;
+    private int depth;
+
+    Capture(@Nullable String segment, TokenBuffer tokens) {
+      this.segment = segment;
+      this.tokens = tokens;
+    }
+
+    /** Appends the current token, returning {@code true} if the value is complete. */
+    boolean append(JsonParser parser, JsonToken token) throws IOException {
+      tokens.copyCurrentEvent(parser);
+      if (token.isStructStart()) {
+        depth++;
+      } else if (token.isStructEnd()) {
+        depth--;
+      }
+      return depth == 0;
+    }
+  }
+
+  /** A trie of the projected paths' segments. */
+  private static final class PathNode {
+
+    final Map<String, PathNode> children;
+    boolean terminal;
+
+    PathNode() {
+      children = new HashMap<>();
+    }
+
+    @Nullable PathNode child(@Nullable String segment) {
+      return segment != null ? children.get(segment) : null;
+    }
+
+    int countTerminals() {
+      if (terminal) {
+        return 1;
+      }
+      int count = 0;
+      for (PathNode child : children.values()) {
+        count += child.countTerminals();
+      }
+      return count;
+    }
+
+    /** Creates a trie of the given paths, where paths that are prefixed by others are dropped. */
+    static PathNode of(Collection<JsonPointer> paths) {
+      PathNode root = new PathNode();
+      for (JsonPointer path : paths) {
+        PathNode node = root;
+        JsonPointer remaining = path;
+        while (!node.terminal && !remaining.matches()) {
+          node =
+              node.children.computeIfAbsent(remaining.getMatchingProperty(), k -> new PathNode());
+          remaining = remaining.tail();
+        }
+        if (!node.terminal) {
+          node.terminal = true;
+          node.children.clear();
+        }
+      }
+      return root;
+    }
+  }
+}
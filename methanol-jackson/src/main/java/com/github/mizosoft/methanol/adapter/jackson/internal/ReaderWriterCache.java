@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.mizosoft.methanol.TypeRef;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of {@code ObjectReader} and {@code ObjectWriter} instances prepared by a mapper
+ * for each type, sparing the resolution of the type and the construction of a reader or writer for
+ * each request or response. When the cache is full, readers and writers for the least recently used
+ * types are evicted.
+ */
+public final class ReaderWriterCache {
+
+  private static final int MAX_CACHED_TYPES = 256;
+
+  private final ObjectMapper mapper;
+  private final LruCache<ObjectReader> readers;
+  private final LruCache<ObjectWriter> writers;
+
+  public ReaderWriterCache(ObjectMapper mapper) {
+    this(mapper, MAX_CACHED_TYPES);
+  }
+
+  ReaderWriterCache(ObjectMapper mapper, int maxCachedTypes) {
+    this.mapper = requireNonNull(mapper);
+    readers = new LruCache<>(maxCachedTypes);
+    writers = new LruCache<>(maxCachedTypes);
+  }
+
+  /** Returns an {@code ObjectReader} for the given type. */
+  public ObjectReader readerFor(TypeRef<?> type) {
+    return readers.computeIfAbsent(type, t -> mapper.readerFor(mapper.constructType(t.type())));
+  }
+
+  /** Returns an {@code ObjectWriter} for the given type. */
+  public ObjectWriter writerFor(TypeRef<?> type) {
+    return writers.computeIfAbsent(type, t -> mapper.writerFor(mapper.constructType(t.type())));
+  }
+
+  private static final class LruCache<V> {
+
+    private final LinkedHashMap<TypeRef<?>, V> entries;
+
+    LruCache(int maxSize) {
+      entries =
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TypeRef<?>, V> eldest) {
+              return size() > maxSize;
+            }
+          };
+    }
+
+    V computeIfAbsent(TypeRef<?> type, Function<TypeRef<?>, V> factory) {
+      V value;
+      synchronized (this) {
+        value = entries.get(type);
+      }
+      if (value == null) {
+        // Readers and writers are immutable so it's fine if concurrent misses create equivalent
+        // ones, which is better than creating them while holding the lock
+        value = factory.apply(type);
+        synchronized (this) {
+          var cached = entries.putIfAbsent(type, value);
+          if (cached != null) {
+            value = cached;
+          }
+        }
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@code BodyPublisher} that lazily serializes a value on a given executor for each
+ * subscription. Serialized content is written into fixed-size buffers, up to a number of which
+ * are kept ahead of downstream demand, so the serializing thread blocks when the subscriber falls
+ * behind instead of buffering the whole body.
+ */
+public final class SerializingPublisher implements BodyPublisher {
+
+  private static final long UNCOMPUTED_LENGTH = -2;
+
+  private final ObjectWriter objWriter;
+  private final Object value;
+  private final Charset charset;
+  private final Executor executor;
+  private final int bufferSize;
+  private final int writeAhead;
+  private final boolean recycleBuffers;
+  private final boolean computeContentLength;
+  private volatile long contentLength = UNCOMPUTED_LENGTH;
+
+  public SerializingPublisher(
+      ObjectWriter objWriter,
+      Object value,
+      Charset charset,
+      Executor executor,
+      int bufferSize,
+      int writeAhead,
+      boolean recycleBuffers,
+      boolean computeContentLength) {
+    this.objWriter = requireNonNull(objWriter);
+    this.value = requireNonNull(value);
+    this.charset = requireNonNull(charset);
+    this.executor = requireNonNull(executor);
+    this.bufferSize = bufferSize;
+    this.writeAhead = writeAhead;
+    this.recycleBuffers = recycleBuffers;
+    this.computeContentLength = computeContentLength;
+  }
+
+  /**
+   * Returns {@code -1} unless the length is to be computed, in which case the value is serialized
+   * once, discarding the output, to count the bytes it's serialized to.
+   */
+  @Override
+  public long contentLength() {
+    if (!computeContentLength) {
+      return -1;
+    }
+
+    long length = contentLength;
+    if (length == UNCOMPUTED_LENGTH) {
+      var counter = new CountingOutputStream();
+      try {
+        serialize(counter);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      length = counter.count;
+      contentLength = length;
+    }
+    return length;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+    requireNonNull(subscriber);
+    new SerializingSubscription(subscriber).signal(true);
+  }
+
+  private void serialize(OutputStream out) throws IOException {
+    if (charset.equals(StandardCharsets.UTF_8)) {
+      objWriter.writeValue(out, value); // Jackson writes UTF-8 directly
+    } else {
+      try (Writer writer = new OutputStreamWriter(out, charset)) {
+        objWriter.writeValue(writer, value);
+      }
+    }
+  }
+
+  private static final class CountingOutputStream extends OutputStream {
+
+    long count;
+
+    CountingOutputStream() {}
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+
+  private final class SerializingSubscription extends AbstractSubscription<ByteBuffer> {
+
+    private final ConcurrentLinkedQueue<ByteBuffer> chunks;
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers;
+    private final ArrayDeque<ByteBuffer> submittedBuffers; // retained if buffers are recycled
+    private final AtomicBoolean started;
+    private final Object writeLock;
+    private volatile boolean complete;
+    private volatile boolean aborted;
+    private volatile @Nullable Throwable writeError;
+
+    SerializingSubscription(Subscriber<? super ByteBuffer> downstream) {
+      super(downstream, FlowSupport.SYNC_EXECUTOR);
+      chunks = new ConcurrentLinkedQueue<>();
+      freeBuffers = new ConcurrentLinkedQueue<>();
+      submittedBuffers = new ArrayDeque<>();
+      started = new AtomicBoolean();
+      writeLock = new Object();
+    }
+
+    @Override
+    protected long emit(Subscriber<? super ByteBuffer> downstream, long emit) {
+      if (started.compareAndSet(false, true)) {
+        try {
+          executor.execute(this::runSerialization);
+        } catch (RuntimeException | Error e) {
+          cancelOnError(downstream, e, true);
+          return 0L;
+        }
+      }
+
+      if (recycleBuffers) {
+        recycleConsumedBuffers();
+      }
+      long submitted = 0L;
+      try {
+        while (true) {
+          ByteBuffer chunk;
+          Throwable error;
+          if ((error = writeError) != null) {
+            cancelOnError(downstream, error, true);
+            return 0L;
+          } else if (complete && chunks.isEmpty()) { // complete is set after the last chunk
+            cancelOnComplete(downstream);
+            return 0L;
+          } else if (submitted >= emit || (chunk = chunks.poll()) == null) {
+            return submitted;
+          }
+
+          if (recycleBuffers) {
+            submittedBuffers.add(chunk);
+          }
+          if (submitOnNext(downstream, chunk)) {
+            submitted++;
+          } else {
+            return 0L;
+          }
+        }
+      } finally {
+        if (submitted > 0) {
+          wakeWriter(); // there's room for more chunks
+        }
+      }
+    }
+
+    @Override
+    protected void abort(boolean flowInterrupted) {
+      aborted = true;
+      chunks.clear();
+      wakeWriter();
+    }
+
+    private void runSerialization() {
+      try {
+        var out = new ChunkingOutputStream();
+        serialize(out);
+        out.close();
+        complete = true;
+      } catch (IOException | RuntimeException e) {
+        if (!aborted) {
+          writeError = e;
+        }
+      }
+      signal(true); // completion is signalled regardless of demand
+    }
+
+    private void wakeWriter() {
+      synchronized (writeLock) {
+        writeLock.notifyAll();
+      }
+    }
+
+    /** Moves buffers that were fully consumed by downstream to the free buffers pool. */
+    private void recycleConsumedBuffers() {
+      ByteBuffer buffer;
+      while ((buffer = submittedBuffers.peek()) != null && !buffer.hasRemaining()) {
+        submittedBuffers.poll();
+        if (freeBuffers.size() < writeAhead) {
+          freeBuffers.add(buffer);
+        }
+      }
+    }
+
+    /** Writes into fixed-size buffers, blocking while {@code writeAhead} chunks are pending. */
+    private final class ChunkingOutputStream extends OutputStream {
+
+      private @Nullable ByteBuffer sink;
+      private boolean closed;
+
+      ChunkingOutputStream() {}
+
+      @Override
+      public void write(int b) throws IOException {
+        var buffer = sink();
+        buffer.put((byte) b);
+        if (!buffer.hasRemaining()) {
+          awaitRoom();
+          submitSink();
+        }
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+          var buffer = sink();
+          int count = Math.min(len, buffer.remaining());
+          buffer.put(b, off, count);
+          off += count;
+          len -= count;
+          if (!buffer.hasRemaining()) {
+            awaitRoom();
+            submitSink();
+          }
+        }
+      }
+
+      /** Submits what's left without waiting for room, as close might follow a failure. */
+      @Override
+      public void close() {
+        if (!closed) {
+          closed = true;
+          var buffer = sink;
+          if (buffer != null && buffer.position() > 0) {
+            submitSink();
+          }
+        }
+      }
+
+      private ByteBuffer sink() throws IOException {
+        if (aborted || closed) {
+          throw new ClosedChannelException();
+        }
+        var buffer = sink;
+        if (buffer == null) {
+          var free = freeBuffers.poll();
+          buffer = free != null ? free.clear() : ByteBuffer.allocate(bufferSize);
+          sink = buffer;
+        }
+        return buffer;
+      }
+
+      private void submitSink() {
+        var buffer = requireNonNull(sink);
+        sink = null;
+        chunks.add(buffer.flip());
+        signal(false);
+      }
+
+      private void awaitRoom() throws IOException {
+        synchronized (writeLock) {
+          while (chunks.size() >= writeAhead && !aborted) {
+            try {
+              writeLock.wait();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new InterruptedIOException("interrupted while serializing");
+            }
+          }
+        }
+        if (aborted) {
+          throw new ClosedChannelException();
+        }
+      }
+    }
+  }
+}
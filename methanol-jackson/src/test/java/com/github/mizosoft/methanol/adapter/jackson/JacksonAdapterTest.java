@@ -24,6 +24,7 @@ package com.github.mizosoft.methanol.adapter.jackson;
 
 import static com.github.mizosoft.methanol.adapter.jackson.JacksonAdapterFactory.createDecoder;
 import static com.github.mizosoft.methanol.adapter.jackson.JacksonAdapterFactory.createEncoder;
+import static com.github.mizosoft.methanol.adapter.jackson.JacksonAdapterFactory.createStreamingEncoder;
 import static com.github.mizosoft.methanol.testutils.TestUtils.NOOP_SUBSCRIPTION;
 import static com.github.mizosoft.methanol.testutils.TestUtils.lines;
 import static java.nio.charset.StandardCharsets.UTF_16;
@@ -46,9 +47,13 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonParser.Feature;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
@@ -57,14 +62,25 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.github.mizosoft.methanol.MediaType;
 import com.github.mizosoft.methanol.TypeRef;
+import com.github.mizosoft.methanol.adapter.jackson.JacksonAdapterFactory.StreamingOptions;
 import com.github.mizosoft.methanol.testutils.BodyCollector;
+import com.github.mizosoft.methanol.testutils.StringDecoder;
+import com.github.mizosoft.methanol.testutils.TestSubscriber;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 
 class JacksonAdapterTest {
@@ -147,6 +163,68 @@ class JacksonAdapterTest {
     assertLinesMatch(lines(expected), lines(toUtf8(body)));
   }
 
+  @Test
+  void serializeJson_streaming() {
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var options =
+          StreamingOptions.newBuilder(executor).bufferSize(64).writeAhead(2).build();
+      var beans = new ArrayList<Bean>();
+      for (int i = 0; i < 1000; i++) {
+        beans.add(new Bean("bean #" + i));
+      }
+      var body = createStreamingEncoder(new JsonMapper(), options).toBody(beans, null);
+      assertEquals(-1, body.contentLength());
+      var expected = toUtf8(createEncoder().toBody(beans, null));
+      assertEquals(expected, toUtf8(body));
+      assertEquals(expected, toUtf8(body)); // serialized anew for each subscription
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void serializeJson_streamingWithContentLength() {
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var options =
+          StreamingOptions.newBuilder(executor)
+              .bufferSize(8)
+              .recycleBuffers(true)
+              .computeContentLength(true)
+              .build();
+      var bean = new Bean("beans are boring");
+      var body =
+          createStreamingEncoder(new JsonMapper(), options)
+              .toBody(bean, MediaType.parse("application/json; charset=utf-16"));
+      var expected = "{\"value\":\"beans are boring\"}";
+      assertEquals(expected.getBytes(UTF_16).length, body.contentLength());
+      assertEquals(expected, toString(body, UTF_16));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void serializeJson_streamingCancelled() throws InterruptedException {
+    var executor = Executors.newSingleThreadExecutor();
+    var options = StreamingOptions.newBuilder(executor).bufferSize(8).writeAhead(1).build();
+    var body =
+        createStreamingEncoder(new JsonMapper(), options)
+            .toBody(new Bean("beans are boring"), null);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0L;
+    body.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+    subscriber.subscription.request(1);
+    subscriber.awaitNext(1);
+    subscriber.subscription.cancel(); // unblocks the serializing thread
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+    assertEquals(1, subscriber.nexts);
+    assertEquals(0, subscriber.completes);
+  }
+
   @Test
   void deserializeJson() {
     var subscriber = JacksonAdapterFactory.createDecoder().toObject(
@@ -254,6 +332,176 @@ class JacksonAdapterTest {
     assertEquals("beans are boring", bean.value);
   }
 
+  @Test
+  void deserializeJson_chunkedIntoHeapAndDirectBuffers() {
+    var mapper = new JsonMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    var subscriber = createDecoder(mapper).toObject(new TypeRef<List<Bean>>() {}, null);
+    var json = "[{\"ignored\":{\"a\":[1,{}]},\"value\":\"beans are boring\"},{\"value\":\"\"}]";
+    var bytes = json.getBytes(UTF_8);
+    var buffers = new ArrayList<ByteBuffer>();
+    for (int i = 0; i < bytes.length; i++) {
+      var buffer = i % 2 == 0 ? ByteBuffer.allocate(1) : ByteBuffer.allocateDirect(1);
+      buffers.add(buffer.put(bytes[i]).flip());
+    }
+    subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+    subscriber.onNext(buffers);
+    subscriber.onComplete();
+    var beans = subscriber.getBody().toCompletableFuture().join();
+    assertEquals(2, beans.size());
+    assertEquals("beans are boring", beans.get(0).value);
+    assertEquals("", beans.get(1).value);
+  }
+
+  @Test
+  void supportsType_elementStreams() {
+    var decoder = createDecoder();
+    assertTrue(decoder.supportsType(new TypeRef<Flow.Publisher<Bean>>() {}));
+    assertTrue(decoder.supportsType(new TypeRef<Stream<List<Bean>>>() {}));
+    assertTrue(decoder.supportsType(new TypeRef<Iterator<? extends Bean>>() {}));
+    assertFalse(decoder.supportsType(TypeRef.from(Flow.Publisher.class)));
+    assertFalse(decoder.supportsType(TypeRef.from(Stream.class)));
+    assertFalse(decoder.supportsType(TypeRef.from(Iterator.class)));
+    assertFalse(decoder.supportsType(elementStreamOf()));
+    assertFalse(decoder.supportsType(new TypeRef<Stream<Thread>>() {}));
+  }
+
+  @Test
+  void deserializeJson_arrayElementsAsPublisher() {
+    var subscriber =
+        createDecoder().toObject(new TypeRef<Flow.Publisher<Bean>>() {}, null);
+    var upstream = new RecordingSubscription();
+    subscriber.onSubscribe(upstream);
+    var body = subscriber.getBody().toCompletableFuture().join();
+    assertEquals(0, upstream.requested); // nothing is requested without demand
+
+    var elements = new TestSubscriber<Bean>();
+    elements.request = 0L;
+    body.subscribe(elements);
+    elements.awaitSubscribe();
+    elements.subscription.request(1);
+    assertEquals(1, upstream.requested);
+    subscriber.onNext(List.of(UTF_8.encode("[{\"value\":\"a\"}, {\"val")));
+    elements.awaitNext(1);
+    assertEquals("a", elements.items.pollFirst().value);
+    assertEquals(1, upstream.requested); // demand is satisfied
+
+    elements.subscription.request(1);
+    assertEquals(2, upstream.requested);
+    subscriber.onNext(List.of(UTF_8.encode("ue\":\"b\"}]")));
+    subscriber.onComplete();
+    elements.awaitComplete();
+    assertEquals("b", elements.items.pollFirst().value);
+    assertEquals(2, elements.nexts);
+  }
+
+  @Test
+  void deserializeJson_newlineDelimitedAsIterator() {
+    var subscriber = createDecoder().toObject(new TypeRef<Iterator<Bean>>() {}, null);
+    var iterator = subscriber.getBody().toCompletableFuture().join();
+    subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+    subscriber.onNext(
+        List.of(UTF_8.encode("{\"value\":\"a\"}\n{\"val"), UTF_8.encode("ue\":\"b\"}\n")));
+    subscriber.onComplete();
+    var values = new ArrayList<String>();
+    iterator.forEachRemaining(bean -> values.add(bean.value));
+    assertEquals(List.of("a", "b"), values);
+  }
+
+  @Test
+  void deserializeJson_closingElementStreamCancelsBody() {
+    var subscriber = createDecoder().toObject(new TypeRef<Stream<Bean>>() {}, null);
+    var upstream = new RecordingSubscription();
+    subscriber.onSubscribe(upstream);
+    subscriber.onNext(List.of(UTF_8.encode("[{\"value\":\"a\"},{\"value\":\"b\"")));
+    try (var stream = subscriber.getBody().toCompletableFuture().join()) {
+      assertEquals("a", stream.findFirst().orElseThrow().value);
+    }
+    assertTrue(upstream.cancelled);
+  }
+
+  @Test
+  void deserializeJson_badJsonElement() {
+    var subscriber = createDecoder().toObject(new TypeRef<Stream<Bean>>() {}, null);
+    subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(UTF_8.encode("[{\"value\":\"a\"}, {\"value\":}]")));
+    subscriber.onComplete();
+    var iterator = subscriber.getBody().toCompletableFuture().join().iterator();
+    assertEquals("a", iterator.next().value);
+    assertThrows(UncheckedIOException.class, iterator::hasNext);
+  }
+
+  @Test
+  void deserializeJson_parsedAsReceived() {
+    var subscriber = createDecoder().toObject(new TypeRef<List<Bean>>() {}, null);
+    subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+    var first = UTF_8.encode("[{\"value\":\"a\"},");
+    var second = UTF_8.encode("{\"value\":\"b\"}]");
+    subscriber.onNext(List.of(first));
+    subscriber.onNext(List.of(second));
+    // Received buffers are not retained, so overwriting them doesn't affect the decoded value
+    first.clear();
+    while (first.hasRemaining()) {
+      first.put((byte) ' ');
+    }
+    second.clear();
+    while (second.hasRemaining()) {
+      second.put((byte) ' ');
+    }
+    subscriber.onComplete();
+    var beans = subscriber.getBody().toCompletableFuture().join();
+    assertEquals(List.of("a", "b"), List.of(beans.get(0).value, beans.get(1).value));
+  }
+
+  @Test
+  void deserializeJson_malformedJsonFailsBeforeCompletion() {
+    var subscriber = createDecoder().toObject(new TypeRef<List<Bean>>() {}, null);
+    var upstream = new RecordingSubscription();
+    subscriber.onSubscribe(upstream);
+    subscriber.onNext(List.of(UTF_8.encode("[{\"value\":\"a\"}, {\"value\":}")));
+    assertTrue(upstream.cancelled);
+    var future = subscriber.getBody().toCompletableFuture();
+    assertTrue(future.isCompletedExceptionally());
+    var ex = assertThrows(CompletionException.class, future::join);
+    assertTrue(ex.getCause() instanceof JsonProcessingException, ex.toString());
+  }
+
+  @Test
+  void prewarm_decoder() {
+    var mapper = new CountingMapper();
+    var decoder = createDecoder(mapper);
+    JacksonAdapterFactory.prewarm(
+        decoder, new TypeRef<Stream<Bean>>() {}, new TypeRef<List<Bean>>() {});
+    assertEquals(2, mapper.readerCount);
+
+    var beans =
+        publishUtf8(decoder.toObject(new TypeRef<List<Bean>>() {}, null), "[{\"value\":\"a\"}]");
+    assertEquals("a", beans.get(0).value);
+    var stream =
+        publishUtf8(
+            decoder.toObject(new TypeRef<Stream<Bean>>() {}, null),
+            "[{\"value\":\"a\"}, {\"value\":\"b\"}]");
+    assertEquals(2, stream.count());
+    assertEquals(2, mapper.readerCount); // prepared readers are reused
+  }
+
+  @Test
+  void prewarm_encoder() {
+    var mapper = new CountingMapper();
+    var encoder = createEncoder(mapper);
+    JacksonAdapterFactory.prewarm(encoder, new TypeRef<Bean>() {});
+    assertEquals(1, mapper.writerCount);
+    assertEquals("{\"value\":\"a\"}", toUtf8(encoder.toBody(new Bean("a"), null)));
+    assertEquals(1, mapper.writerCount);
+  }
+
+  @Test
+  void prewarm_unsupportedAdapter() {
+    var decoder = new StringDecoder();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> JacksonAdapterFactory.prewarm(decoder, TypeRef.from(String.class)));
+  }
+
   private static String toUtf8(BodyPublisher publisher) {
     return toString(publisher, UTF_8);
   }
@@ -281,7 +529,12 @@ class JacksonAdapterTest {
         .setVisibility(PropertyAccessor.ALL, Visibility.ANY);
   }
 
+  private static <T> TypeRef<Stream<T>> elementStreamOf() {
+    return new TypeRef<Stream<T>>() {};
+  }
+
   // [de]serializable by jackson without configuration
+
   private static class Bean {
 
     private String value;
@@ -319,6 +572,26 @@ class JacksonAdapterTest {
     }
   }
 
+  private static final class CountingMapper extends JsonMapper {
+
+    int readerCount;
+    int writerCount;
+
+    CountingMapper() {}
+
+    @Override
+    public ObjectReader readerFor(JavaType type) {
+      readerCount++;
+      return super.readerFor(type);
+    }
+
+    @Override
+    public ObjectWriter writerFor(JavaType type) {
+      writerCount++;
+      return super.writerFor(type);
+    }
+  }
+
   private static class Point {
 
     int x, y;
@@ -383,4 +656,22 @@ class JacksonAdapterTest {
       return new Bean(node.get("value").textValue());
     }
   }
+
+  private static final class RecordingSubscription implements Subscription {
+
+    volatile long requested;
+    volatile boolean cancelled;
+
+    RecordingSubscription() {}
+
+    @Override
+    public synchronized void request(long n) {
+      requested += n;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson;
+
+import static com.github.mizosoft.methanol.testutils.TestUtils.NOOP_SUBSCRIPTION;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.TypeRef;
+import com.github.mizosoft.methanol.testutils.BodyCollector;
+import java.io.IOException;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class JacksonBinaryAdapterTest {
+
+  @Test
+  void isCompatibleWith_smile() {
+    var mapper = new SmileMapper();
+    for (var c : List.of(
+        JacksonAdapterFactory.createSmileEncoder(mapper),
+        JacksonAdapterFactory.createSmileDecoder(mapper))) {
+      assertTrue(c.isCompatibleWith(MediaType.of("application", "x-jackson-smile")));
+      assertTrue(c.isCompatibleWith(MediaType.of("application", "*")));
+      assertFalse(c.isCompatibleWith(MediaType.APPLICATION_JSON));
+      assertFalse(c.isCompatibleWith(MediaType.APPLICATION_CBOR));
+    }
+  }
+
+  @Test
+  void isCompatibleWith_cbor() {
+    var mapper = new CBORMapper();
+    for (var c : List.of(
+        JacksonAdapterFactory.createCborEncoder(mapper),
+        JacksonAdapterFactory.createCborDecoder(mapper))) {
+      assertTrue(c.isCompatibleWith(MediaType.of("application", "cbor")));
+      assertTrue(c.isCompatibleWith(MediaType.of("application", "*")));
+      assertFalse(c.isCompatibleWith(MediaType.APPLICATION_JSON));
+      assertFalse(c.isCompatibleWith(MediaType.APPLICATION_X_JACKSON_SMILE));
+    }
+  }
+
+  @Test
+  void supportsType_elementStreams() {
+    // Smile can be parsed asynchronously but CBOR can't, so elements can't be decoded as received
+    var smileDecoder = JacksonAdapterFactory.createSmileDecoder(new SmileMapper());
+    assertTrue(smileDecoder.supportsType(new TypeRef<Stream<Bean>>() {}));
+    var cborDecoder = JacksonAdapterFactory.createCborDecoder(new CBORMapper());
+    assertTrue(cborDecoder.supportsType(new TypeRef<Bean>() {}));
+    assertFalse(cborDecoder.supportsType(new TypeRef<Flow.Publisher<Bean>>() {}));
+    assertFalse(cborDecoder.supportsType(new TypeRef<Stream<Bean>>() {}));
+    assertFalse(cborDecoder.supportsType(new TypeRef<Iterator<Bean>>() {}));
+  }
+
+  @Test
+  void mismatchedFormat() {
+    var jsonMapper = new JsonMapper();
+    assertThrows(
+        IllegalArgumentException.class, () -> JacksonAdapterFactory.createSmileEncoder(jsonMapper));
+    assertThrows(
+        IllegalArgumentException.class, () -> JacksonAdapterFactory.createSmileDecoder(jsonMapper));
+    assertThrows(
+        IllegalArgumentException.class, () -> JacksonAdapterFactory.createCborEncoder(jsonMapper));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> JacksonAdapterFactory.createCborDecoder(new SmileMapper()));
+  }
+
+  @Test
+  void serializeSmile() throws IOException {
+    var mapper = new SmileMapper();
+    var bean = new Bean("beans are boring");
+    var body = JacksonAdapterFactory.createSmileEncoder(mapper).toBody(bean, null);
+    assertArrayEquals(mapper.writeValueAsBytes(bean), toByteArray(body));
+  }
+
+  @Test
+  void serializeSmile_charsetIgnored() throws IOException {
+    var mapper = new SmileMapper();
+    var bean = new Bean("beans are boring");
+    var body = JacksonAdapterFactory.createSmileEncoder(mapper)
+        .toBody(bean, MediaType.parse("application/x-jackson-smile; charset=utf-16"));
+    assertArrayEquals(mapper.writeValueAsBytes(bean), toByteArray(body));
+  }
+
+  @Test
+  void deserializeSmile() throws IOException {
+    var mapper = new SmileMapper();
+    var subscriber = JacksonAdapterFactory.createSmileDecoder(mapper)
+        .toObject(new TypeRef<Bean>() {}, null);
+    var bean = publishInChunks(subscriber, mapper.writeValueAsBytes(new Bean("beans are boring")));
+    assertEquals("beans are boring", bean.value);
+  }
+
+  @Test
+  void deserializeSmile_deferred() throws IOException {
+    var mapper = new SmileMapper();
+    var subscriber = JacksonAdapterFactory.createSmileDecoder(mapper)
+        .toDeferredObject(new TypeRef<Bean>() {}, null);
+    var supplier =
+        publishInChunks(subscriber, mapper.writeValueAsBytes(new Bean("beans are boring")));
+    assertEquals("beans are boring", supplier.get().value);
+  }
+
+  @Test
+  void serializeCbor() throws IOException {
+    var mapper = new CBORMapper();
+    var bean = new Bean("beans are boring");
+    var body = JacksonAdapterFactory.createCborEncoder(mapper).toBody(bean, null);
+    assertArrayEquals(mapper.writeValueAsBytes(bean), toByteArray(body));
+  }
+
+  @Test
+  void deserializeCbor() throws IOException {
+    var mapper = new CBORMapper();
+    var subscriber = JacksonAdapterFactory.createCborDecoder(mapper)
+        .toObject(new TypeRef<Bean>() {}, null);
+    var bean = publishInChunks(subscriber, mapper.writeValueAsBytes(new Bean("beans are boring")));
+    assertEquals("beans are boring", bean.value);
+  }
+
+  @Test
+  void deserializeCbor_deferred() throws IOException {
+    var mapper = new CBORMapper();
+    var subscriber = JacksonAdapterFactory.createCborDecoder(mapper)
+        .toDeferredObject(new TypeRef<Bean>() {}, null);
+    Supplier<Bean> supplier =
+        publishInChunks(subscriber, mapper.writeValueAsBytes(new Bean("beans are boring")));
+    assertEquals("beans are boring", supplier.get().value);
+  }
+
+  private static byte[] toByteArray(BodyPublisher publisher) {
+    var buffer = BodyCollector.collect(publisher);
+    var bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * Publishes the body as small buffers so that the non-blocking parser gets fed incrementally.
+   * The buffers are published in one signal as only one is requested by some subscribers (e.g.
+   * ones that read the body from an {@code InputStream}).
+   */
+  private static <T> T publishInChunks(BodySubscriber<T> subscriber, byte[] body) {
+    var chunks = new ArrayList<ByteBuffer>();
+    for (int i = 0; i < body.length; i += 3) {
+      chunks.add(ByteBuffer.wrap(body, i, Math.min(3, body.length - i)));
+    }
+    subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+    subscriber.onNext(chunks);
+    subscriber.onComplete();
+    return subscriber.getBody().toCompletableFuture().join();
+  }
+
+  // [de]serializable by jackson without configuration
+  private static class Bean {
+
+    private String value;
+
+    public Bean() {
+    }
+
+    public Bean(String value) {
+      this.value = value;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    public void setValue(String value) {
+      this.value = value;
+    }
+  }
+}
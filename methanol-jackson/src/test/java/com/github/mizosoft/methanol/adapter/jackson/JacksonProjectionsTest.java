@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson;
+
+import static com.github.mizosoft.methanol.testutils.TestUtils.NOOP_SUBSCRIPTION;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.mizosoft.methanol.TypeRef;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Flow.Subscription;
+import org.junit.jupiter.api.Test;
+
+class JacksonProjectionsTest {
+
+  private static final String JSON =
+      "{\"id\":1,"
+          + "\"skipped\":{\"deep\":[1,{\"id\":2}],\"name\":\"x\"},"
+          + "\"owner\":{\"name\":\"Keanu\",\"age\":55},"
+          + "\"tags\":[\"a\",\"b\",\"c\"],"
+          + "\"trailer\":\"ignored\"}";
+
+  @Test
+  void projectPaths() {
+    var subscriber =
+        JacksonProjections.ofPaths(new JsonMapper(), Set.of("/id", "/owner/name", "/tags/1"));
+    subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+    var bytes = JSON.getBytes(UTF_8);
+    for (byte b : bytes) { // Feed byte by byte to cross all token boundaries
+      subscriber.onNext(List.of(ByteBuffer.wrap(new byte[] {b})));
+    }
+    subscriber.onComplete();
+    var tree = subscriber.getBody().toCompletableFuture().join();
+    assertEquals(1, tree.at("/id").intValue());
+    assertEquals("Keanu", tree.at("/owner/name").textValue());
+    assertEquals("b", tree.at("/tags/1").textValue());
+    assertTrue(tree.at("/owner/age").isMissingNode());
+    assertTrue(tree.at("/skipped").isMissingNode());
+    assertTrue(tree.at("/tags/0").isNull());
+  }
+
+  @Test
+  void projectNestedPathsOnce() {
+    var subscriber = JacksonProjections.ofPaths(new JsonMapper(), Set.of("/owner", "/owner/age"));
+    subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(UTF_8.encode(JSON)));
+    var tree = subscriber.getBody().toCompletableFuture().join();
+    assertEquals("Keanu", tree.at("/owner/name").textValue());
+    assertEquals(55, tree.at("/owner/age").intValue());
+  }
+
+  @Test
+  void bodyIsCancelledOnceAllPathsAreSeen() {
+    var subscriber = JacksonProjections.ofPaths(new JsonMapper(), Set.of("/id", "/owner/age"));
+    var upstream = new RecordingSubscription();
+    subscriber.onSubscribe(upstream);
+    subscriber.onNext(List.of(UTF_8.encode("{\"id\":1,\"owner\":{\"name\":\"Keanu\",")));
+    assertFalse(upstream.cancelled);
+    subscriber.onNext(List.of(UTF_8.encode("\"age\":55},\"rest\":[")));
+    assertTrue(upstream.cancelled);
+    var tree = subscriber.getBody().toCompletableFuture().join();
+    assertEquals(1, tree.at("/id").intValue());
+    assertEquals(55, tree.at("/owner/age").intValue());
+  }
+
+  @Test
+  void missingPathsCompleteWithBody() {
+    var subscriber = JacksonProjections.ofPaths(new JsonMapper(), Set.of("/id", "/nope"));
+    subscriber.onSubscribe(NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(UTF_8.encode(JSON)));
+    assertFalse(subscriber.getBody().toCompletableFuture().isDone());
+    subscriber.onComplete();
+    var tree = subscriber.getBody().toCompletableFuture().join();
+    assertEquals(1, tree.at("/id").intValue());
+    assertTrue(tree.at("/nope").isMissingNode());
+  }
+
+  @Test
+  void projectView() {
+    var subscriber = JacksonProjections.ofView(new JsonMapper(), new TypeRef<View>() {});
+    var upstream = new RecordingSubscription();
+    subscriber.onSubscribe(upstream);
+    subscriber.onNext(List.of(UTF_8.encode(JSON)));
+    assertTrue(upstream.cancelled);
+    var view = subscriber.getBody().toCompletableFuture().join();
+    assertEquals(1, view.id);
+    assertEquals(List.of("a", "b", "c"), view.tags);
+  }
+
+  @Test
+  void invalidPath() {
+    var mapper = new JsonMapper();
+    assertThrows(
+        IllegalArgumentException.class, () -> JacksonProjections.ofPaths(mapper, Set.of("id")));
+  }
+
+  private static final class View {
+
+    public int id;
+    public List<String> tags;
+
+    View() {}
+  }
+
+  private static final class RecordingSubscription implements Subscription {
+
+    volatile boolean cancelled;
+
+    RecordingSubscription() {}
+
+    @Override
+    public void request(long n) {}
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+}
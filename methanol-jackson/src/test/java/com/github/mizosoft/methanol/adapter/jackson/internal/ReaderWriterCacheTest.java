@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.jackson.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.mizosoft.methanol.TypeRef;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ReaderWriterCacheTest {
+
+  @Test
+  void readersAreCachedPerType() throws IOException {
+    var cache = new ReaderWriterCache(new JsonMapper());
+    var type = new TypeRef<List<Map<String, Integer>>>() {};
+    var reader = cache.readerFor(type);
+    assertSame(reader, cache.readerFor(new TypeRef<List<Map<String, Integer>>>() {}));
+    assertNotSame(reader, cache.readerFor(TypeRef.from(String.class)));
+    assertEquals(List.of(Map.of("a", 1)), reader.readValue("[{\"a\":1}]"));
+  }
+
+  @Test
+  void writersAreCachedPerType() throws IOException {
+    var cache = new ReaderWriterCache(new JsonMapper());
+    var writer = cache.writerFor(TypeRef.from(Map.class));
+    assertSame(writer, cache.writerFor(TypeRef.from(Map.class)));
+    assertEquals("{\"a\":1}", writer.writeValueAsString(Map.of("a", 1)));
+  }
+
+  @Test
+  void leastRecentlyUsedTypesAreEvicted() {
+    var cache = new ReaderWriterCache(new JsonMapper(), 2);
+    var stringReader = cache.readerFor(TypeRef.from(String.class));
+    var integerReader = cache.readerFor(TypeRef.from(Integer.class));
+    assertSame(stringReader, cache.readerFor(TypeRef.from(String.class)));
+    cache.readerFor(TypeRef.from(Long.class)); // Evicts Integer
+    assertSame(stringReader, cache.readerFor(TypeRef.from(String.class)));
+    assertNotSame(integerReader, cache.readerFor(TypeRef.from(Integer.class)));
+  }
+
+  @Test
+  void newTypesAreCachedWhenFull() {
+    var cache = new ReaderWriterCache(new JsonMapper(), 2);
+    cache.writerFor(TypeRef.from(String.class));
+    cache.writerFor(TypeRef.from(Integer.class));
+    var writer = cache.writerFor(TypeRef.from(Long.class));
+    assertSame(writer, cache.writerFor(TypeRef.from(Long.class)));
+  }
+}
@@ -24,14 +24,17 @@ package com.github.mizosoft.methanol.adapter.jaxb;
 
 import static java.util.Objects.requireNonNull;
 
+import com.github.mizosoft.methanol.AggregatedBody;
 import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.MoreBodySubscribers;
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodySubscriber;
@@ -107,9 +110,8 @@ abstract class JaxbAdapter extends AbstractBodyAdapter {
       Charset charset = charsetOrNull(mediaType);
       Unmarshaller unmarshaller = createUnmarshallerUnchecked(elementClass);
       return BodySubscribers.mapping(
-          BodySubscribers.ofByteArray(),
-          bytes ->
-              unmarshalValue(elementClass, unmarshaller, new ByteArrayInputStream(bytes), charset));
+          MoreBodySubscribers.ofAggregatedBody(),
+          body -> unmarshalValue(elementClass, unmarshaller, body, charset));
     }
 
     @Override
@@ -126,6 +128,19 @@ abstract class JaxbAdapter extends AbstractBodyAdapter {
           in -> () -> unmarshalValue(elementClass, unmarshaller, in, charset));
     }
 
+    private <T> T unmarshalValue(
+        Class<T> elementClass,
+        Unmarshaller unmarshaller,
+        AggregatedBody body,
+        @Nullable Charset charset) {
+      try (body;
+          InputStream in = body.inputStream()) {
+        return unmarshalValue(elementClass, unmarshaller, in, charset);
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
+      }
+    }
+
     private <T> T unmarshalValue(
         Class<T> elementClass,
         Unmarshaller unmarshaller,
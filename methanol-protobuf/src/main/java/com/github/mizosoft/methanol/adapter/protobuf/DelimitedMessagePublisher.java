@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.protobuf;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import java.io.IOException;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+
+/**
+ * A {@code BodyPublisher} that writes the messages of a {@code Publisher} as a sequence of
+ * length-delimited messages, as read by {@link MessageLite.Builder#mergeDelimitedFrom(
+ * java.io.InputStream)}. Each message is published as a single buffer, and messages are requested
+ * from the source only as buffers are requested, so only one message is held at a time.
+ */
+final class DelimitedMessagePublisher implements BodyPublisher {
+
+  private final Publisher<?> source;
+
+  DelimitedMessagePublisher(Publisher<?> source) {
+    this.source = source;
+  }
+
+  @Override
+  public long contentLength() {
+    return -1;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+    requireNonNull(subscriber);
+    source.subscribe(new EncodingSubscriber(subscriber));
+  }
+
+  private static ByteBuffer encodeDelimited(MessageLite message) throws IOException {
+    int size = message.getSerializedSize();
+    byte[] bytes = new byte[CodedOutputStream.computeUInt32SizeNoTag(size) + size];
+    CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+    out.writeUInt32NoTag(size);
+    message.writeTo(out);
+    out.checkNoSpaceLeft();
+    return ByteBuffer.wrap(bytes);
+  }
+
+  /**
+   * Maps each message to its encoding. Requests are one to one, so the source's subscription is
+   * passed through downstream as is.
+   */
+  private static final class EncodingSubscriber implements Subscriber<Object> {
+
+    private final Subscriber<? super ByteBuffer> downstream;
+    private @MonotonicNonNull Subscription upstream;
+    private boolean done;
+
+    EncodingSubscriber(Subscriber<? super ByteBuffer> downstream) {
+      this.downstream = downstream;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      requireNonNull(subscription);
+      upstream = subscription;
+      downstream.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(Object item) {
+      requireNonNull(item);
+      if (done) {
+        return;
+      }
+
+      ByteBuffer encoded;
+      try {
+        if (!(item instanceof MessageLite)) {
+          throw new IllegalArgumentException("not a message: " + item.getClass());
+        }
+        encoded = encodeDelimited((MessageLite) item);
+      } catch (IOException | RuntimeException e) {
+        done = true;
+        Subscription subscription = upstream;
+        if (subscription != null) {
+          subscription.cancel();
+        }
+        downstream.onError(e);
+        return;
+      }
+      downstream.onNext(encoded);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      requireNonNull(throwable);
+      if (!done) {
+        done = true;
+        downstream.onError(throwable);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      if (!done) {
+        done = true;
+        downstream.onComplete();
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.adapter.protobuf;
+
+import com.github.mizosoft.methanol.internal.flow.AbstractElementSubscriber;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@code BodySubscriber} that decodes a sequence of length-delimited messages, as written by
+ * {@link MessageLite#writeDelimitedTo(java.io.OutputStream)}, into a {@code Publisher}. Messages
+ * are parsed as their frames complete, and the body is requested from upstream only as much as
+ * needed to satisfy downstream demand. Frames are sliced from the received buffers without
+ * copying. A frame that lies within a single buffer is parsed in place, and its bytes fields alias
+ * that buffer. A frame spanning multiple buffers is parsed as specified by {@link
+ * ProtobufAdapter#newCodedInput(List)}. Cancelling the returned publisher's subscription cancels
+ * the body.
+ */
+final class DelimitedMessageSubscriber<T extends MessageLite>
+    extends AbstractElementSubscriber<T> {
+
+  // The length prefix is a varint32, which takes at most 5 bytes
+  private static final int MAX_VARINT32_SIZE = 5;
+
+  private final Class<T> messageClass;
+  private final Parser<? extends MessageLite> parser;
+  private final ExtensionRegistryLite registry;
+
+  // Framing state, accessed only within decodeNext
+  private final List<ByteBuffer> messageChunks = new ArrayList<>();
+  private @Nullable ByteBuffer currentInput;
+  private int lengthPrefix;
+  private int lengthPrefixSize;
+  private int remainingMessageLength = -1; // -1 while reading the length prefix
+
+  DelimitedMessageSubscriber(
+      Class<T> messageClass, Parser<? extends MessageLite> parser, ExtensionRegistryLite registry) {
+    this.messageClass = messageClass;
+    this.parser = parser;
+    this.registry = registry;
+  }
+
+  @Override
+  protected @Nullable T decodeNext() throws IOException {
+    ByteBuffer buffer;
+    while ((buffer = nextInput()) != null) {
+      T message = readFrame(buffer);
+      if (message != null) {
+        return message;
+      }
+    }
+    if (isEndOfInput() && (lengthPrefixSize > 0 || remainingMessageLength >= 0)) {
+      throw new InvalidProtocolBufferException("body ended in the middle of a message");
+    }
+    return null;
+  }
+
+  private @Nullable ByteBuffer nextInput() {
+    ByteBuffer buffer = currentInput;
+    if (buffer == null || !buffer.hasRemaining()) {
+      buffer = pollInput();
+      currentInput = buffer;
+    }
+    return buffer;
+  }
+
+  /**
+   * Consumes the given buffer until it's exhausted or the current message is parsed, returning the
+   * message in the latter case.
+   */
+  private @Nullable T readFrame(ByteBuffer buffer) throws IOException {
+    while (remainingMessageLength < 0 && buffer.hasRemaining()) {
+      int b = buffer.get();
+      // The last byte can only hold the remaining 4 bits & must not have a continuation bit
+      if (lengthPrefixSize == MAX_VARINT32_SIZE - 1 && (b & 0xF0) != 0) {
+        throw new InvalidProtocolBufferException("malformed message length");
+      }
+      lengthPrefix |= (b & 0x7F) << (7 * lengthPrefixSize++);
+      if (b >= 0) {
+        if (lengthPrefix < 0) {
+          throw new InvalidProtocolBufferException("negative message length: " + lengthPrefix);
+        }
+        remainingMessageLength = lengthPrefix;
+        lengthPrefix = 0;
+        lengthPrefixSize = 0;
+      }
+    }
+
+    if (remainingMessageLength > 0 && buffer.hasRemaining()) {
+      int chunkLength = Math.min(remainingMessageLength, buffer.remaining());
+      ByteBuffer chunk = buffer.duplicate();
+      chunk.limit(chunk.position() + chunkLength);
+      buffer.position(buffer.position() + chunkLength);
+      messageChunks.add(chunk);
+      remainingMessageLength -= chunkLength;
+    }
+
+    if (remainingMessageLength == 0) {
+      remainingMessageLength = -1;
+      return parseMessage();
+    }
+    return null;
+  }
+
+  private T parseMessage() throws IOException {
+    CodedInputStream in = ProtobufAdapter.newCodedInput(messageChunks);
+    // Received buffers are never modified, so parsed bytes fields can safely share them
+    in.enableAliasing(true);
+    messageChunks.clear();
+    return messageClass.cast(parser.parseFrom(in, registry));
+  }
+}
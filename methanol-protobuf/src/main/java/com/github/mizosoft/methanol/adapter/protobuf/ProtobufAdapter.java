@@ -24,22 +24,34 @@ package com.github.mizosoft.methanol.adapter.protobuf;
 
 import static java.util.Objects.requireNonNull;
 
+import com.github.mizosoft.methanol.AggregatedBody;
 import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.MoreBodySubscribers;
 import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.AbstractBodyAdapter;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.ExtensionRegistryLite;
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.google.protobuf.UnsafeByteOperations;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
 import java.util.function.Supplier;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -49,21 +61,81 @@ abstract class ProtobufAdapter extends AbstractBodyAdapter {
     super(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_X_PROTOBUF);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>In addition to messages, a {@code Flow.Publisher<T>} of a message type {@code T} is
+   * supported, in which case the body is a sequence of length-delimited messages as written by
+   * {@link MessageLite#writeDelimitedTo(java.io.OutputStream)}. Messages are written as they're
+   * published or parsed one by one as they're received.
+   */
   @Override
   public boolean supportsType(TypeRef<?> type) {
-    return type.type() instanceof Class<?>
-        && MessageLite.class.isAssignableFrom(type.rawType());
+    return (type.type() instanceof Class<?> && MessageLite.class.isAssignableFrom(type.rawType()))
+        || getPublishedMessageType(type) != null;
+  }
+
+  /** Returns the message type of a {@code Flow.Publisher<T>} where T is a message, or null. */
+  static @Nullable Class<?> getPublishedMessageType(TypeRef<?> type) {
+    if (type.rawType() != Flow.Publisher.class || !(type.type() instanceof ParameterizedType)) {
+      return null;
+    }
+    Type elementType = ((ParameterizedType) type.type()).getActualTypeArguments()[0];
+    if (elementType instanceof WildcardType) {
+      Type[] upperBounds = ((WildcardType) elementType).getUpperBounds();
+      elementType = upperBounds.length > 0 ? upperBounds[0] : Object.class;
+    }
+    return elementType instanceof Class<?>
+            && MessageLite.class.isAssignableFrom((Class<?>) elementType)
+        ? (Class<?>) elementType
+        : null;
+  }
+
+  /**
+   * Returns a {@code CodedInputStream} that reads the given buffers' content. A single buffer is
+   * read without copying, from its backing array if it has an accessible one or otherwise from
+   * its memory, which allows bytes fields to alias it if aliasing is enabled. Multiple buffers
+   * are wrapped as a rope without copying, but protobuf reads a rope through a stream that copies
+   * the buffers into an internal buffer as they're read, so bytes fields never alias them.
+   */
+  static CodedInputStream newCodedInput(List<ByteBuffer> buffers) {
+    if (buffers.size() == 1) {
+      ByteBuffer buffer = buffers.get(0);
+      // ByteStrings wrapping an array create decoders that treat it as immutable, which
+      // CodedInputStream.newInstance(byte[], int, int) doesn't, and only then are bytes aliased
+      return buffer.hasArray()
+          ? UnsafeByteOperations.unsafeWrap(
+                  buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining())
+              .newCodedInput()
+          : UnsafeByteOperations.unsafeWrap(buffer).newCodedInput();
+    }
+    List<ByteString> chunks = new ArrayList<>(buffers.size());
+    for (ByteBuffer buffer : buffers) {
+      chunks.add(UnsafeByteOperations.unsafeWrap(buffer));
+    }
+    return ByteString.copyFrom(chunks).newCodedInput();
   }
 
   static final class Encoder extends ProtobufAdapter implements BodyAdapter.Encoder {
 
     Encoder() {}
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A {@code Flow.Publisher} passed for a {@code Flow.Publisher<T>} of a message type {@code
+     * T} has its messages written as they're published. As the message type of a publisher can't
+     * be known from its runtime class, published items that aren't messages fail the body.
+     */
     @Override
     public BodyPublisher toBody(Object object, @Nullable MediaType mediaType) {
       requireNonNull(object);
-      requireSupport(object.getClass());
       requireCompatibleOrNull(mediaType);
+      if (object instanceof Flow.Publisher<?> && !(object instanceof BodyPublisher)) {
+        return attachMediaType(
+            new DelimitedMessagePublisher((Flow.Publisher<?>) object), mediaType);
+      }
+      requireSupport(object.getClass());
       MessageLite message = (MessageLite) object;
       return attachMediaType(BodyPublishers.ofByteArray(message.toByteArray()), mediaType);
     }
@@ -82,11 +154,16 @@ abstract class ProtobufAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
+      Class<?> publishedMessageType = getPublishedMessageType(type);
+      if (publishedMessageType != null) {
+        return toMessagePublisher(publishedMessageType.asSubclass(MessageLite.class));
+      }
       // We know that T is <= MessageLite to the caller, but the compiler doesn't
       Class<T> messageClass = type.exactRawType();
       MessageLite.Builder builder = getBuilderForMessage(messageClass);
       return BodySubscribers.mapping(
-          BodySubscribers.ofByteArray(), data -> buildMessage(messageClass, builder, data));
+          MoreBodySubscribers.ofAggregatedBody(),
+          body -> buildMessage(messageClass, builder, body));
     }
 
     @Override
@@ -95,17 +172,36 @@ abstract class ProtobufAdapter extends AbstractBodyAdapter {
       requireNonNull(type);
       requireSupport(type);
       requireCompatibleOrNull(mediaType);
+      if (getPublishedMessageType(type) != null) {
+        // Messages are decoded lazily anyways
+        return BodySubscribers.mapping(toObject(type, mediaType), body -> () -> body);
+      }
       Class<T> messageClass = type.exactRawType();
       MessageLite.Builder builder = getBuilderForMessage(messageClass);
       return BodySubscribers.mapping(
           BodySubscribers.ofInputStream(), in -> () -> buildMessage(messageClass, builder, in));
     }
 
-    private <T> T buildMessage(Class<T> messageClass, MessageLite.Builder builder, byte[] data) {
-      try {
-        builder.mergeFrom(data, registry);
-      } catch (InvalidProtocolBufferException e) {
-        throw new UncheckedIOException(e);
+    private <T, M extends MessageLite> BodySubscriber<T> toMessagePublisher(Class<M> messageClass) {
+      Parser<? extends MessageLite> parser =
+          getBuilderForMessage(messageClass).getDefaultInstanceForType().getParserForType();
+      @SuppressWarnings("unchecked") // T is Flow.Publisher<M> as checked by the caller
+      BodySubscriber<T> subscriber =
+          (BodySubscriber<T>) new DelimitedMessageSubscriber<>(messageClass, parser, registry);
+      return subscriber;
+    }
+
+    private <T> T buildMessage(
+        Class<T> messageClass, MessageLite.Builder builder, AggregatedBody body) {
+      try (body) {
+        CodedInputStream input = newCodedInput(body.asByteBuffers());
+        // Bytes fields can share the body's memory unless it's a mapping of a file that's
+        // deleted once the message is built
+        input.enableAliasing(!body.isSpilled());
+        builder.mergeFrom(input, registry);
+        input.checkLastTagWas(0);
+      } catch (IOException ioe) {
+        throw new UncheckedIOException(ioe);
       }
       return messageClass.cast(builder.build());
     }
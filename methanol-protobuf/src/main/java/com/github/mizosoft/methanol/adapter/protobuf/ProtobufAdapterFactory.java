@@ -30,7 +30,8 @@ import com.google.protobuf.ExtensionRegistryLite;
 /**
  * Providers {@link BodyAdapter} for google's <a
  * href="https://developers.google.com/protocol-buffers">protocol buffers</a> format. The adapters
- * support any subtype of {@link com.google.protobuf.MessageLite}.
+ * support any subtype of {@link com.google.protobuf.MessageLite}, as well as a {@code
+ * Flow.Publisher} of messages, which is streamed as a sequence of length-delimited messages.
  */
 public class ProtobufAdapterFactory {
 
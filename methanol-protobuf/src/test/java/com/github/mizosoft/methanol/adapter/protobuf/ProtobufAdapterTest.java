@@ -24,6 +24,7 @@ package com.github.mizosoft.methanol.adapter.protobuf;
 
 import static com.github.mizosoft.methanol.adapter.protobuf.ProtobufAdapterFactory.createDecoder;
 import static com.github.mizosoft.methanol.adapter.protobuf.ProtobufAdapterFactory.createEncoder;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -35,16 +36,25 @@ import com.github.mizosoft.methanol.TypeRef;
 import com.github.mizosoft.methanol.adapter.protobuf.TestProto.AwesomePerson;
 import com.github.mizosoft.methanol.adapter.protobuf.TestProto.Awesomeness;
 import com.github.mizosoft.methanol.testutils.BodyCollector;
+import com.github.mizosoft.methanol.testutils.TestSubscriber;
 import com.github.mizosoft.methanol.testutils.TestUtils;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.ExtensionRegistry;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 import com.google.protobuf.MessageLite;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.SubmissionPublisher;
 import org.junit.jupiter.api.Test;
 
 public class ProtobufAdapterTest {
@@ -62,6 +72,18 @@ public class ProtobufAdapterTest {
     }
   }
 
+  @Test
+  void supportsType_publisher() {
+    for (var c : List.of(createEncoder(), ProtobufAdapterFactory.createDecoder())) {
+      assertTrue(c.supportsType(new TypeRef<Flow.Publisher<AwesomePerson>>() {}));
+      assertTrue(c.supportsType(new TypeRef<Flow.Publisher<? extends MessageLite>>() {}));
+      assertFalse(c.supportsType(TypeRef.from(Flow.Publisher.class)));
+      assertFalse(c.supportsType(TypeRef.from(SubmissionPublisher.class)));
+      assertFalse(c.supportsType(new TypeRef<Flow.Publisher<String>>() {}));
+      assertFalse(c.supportsType(new TypeRef<Flow.Publisher<ByteBuffer>>() {}));
+    }
+  }
+
   @Test
   void unsupportedConversion_encoder() {
     var encoder = createEncoder();
@@ -103,6 +125,127 @@ public class ProtobufAdapterTest {
     assertEquals(elon, publishMessage(subscriber, elon));
   }
 
+  @Test
+  void deserializeMessage_splitIntoHeapAndDirectBuffers() {
+    var subscriber = ProtobufAdapterFactory
+        .createDecoder().toObject(TypeRef.from(AwesomePerson.class), null);
+    var elon = AwesomePerson.newBuilder()
+        .setFirstName("Elon")
+        .setLastName("Musk")
+        .setAge(48)
+        .build();
+    var bytes = elon.toByteArray();
+    subscriber.onSubscribe(TestUtils.NOOP_SUBSCRIPTION);
+    for (int i = 0; i < bytes.length; i += 3) {
+      int length = Math.min(3, bytes.length - i);
+      var buffer =
+          (i / 3) % 2 == 0 ? ByteBuffer.allocate(length) : ByteBuffer.allocateDirect(length);
+      subscriber.onNext(List.of(buffer.put(bytes, i, length).flip()));
+    }
+    subscriber.onComplete();
+    assertEquals(elon, subscriber.getBody().toCompletableFuture().join());
+  }
+
+  @Test
+  void deserializeMessage_bytesFieldAliasesReceivedBuffer() {
+    var subscriber = ProtobufAdapterFactory
+        .createDecoder().toObject(TypeRef.from(AwesomePerson.class), null);
+    var elon = AwesomePerson.newBuilder()
+        .setFirstName("Elon")
+        .setPhoto(ByteString.copyFromUtf8("rocket"))
+        .build();
+    var buffer = ByteBuffer.wrap(elon.toByteArray());
+    subscriber.onSubscribe(TestUtils.NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(buffer));
+    subscriber.onComplete();
+    var person = subscriber.getBody().toCompletableFuture().join();
+    assertEquals(elon, person);
+    // The photo reflects changes to the received buffer only if it shares its array
+    Arrays.fill(buffer.array(), (byte) 'x');
+    assertEquals("xxxxxx", person.getPhoto().toStringUtf8());
+    assertEquals("Elon", person.getFirstName());
+  }
+
+  @Test
+  void serializeDelimitedMessages() throws IOException {
+    var people = awesomePeople(100);
+    var source = new SubmissionPublisher<AwesomePerson>(Runnable::run, 1);
+    var body = createEncoder().toBody(source, null);
+    assertEquals(-1, body.contentLength());
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0L;
+    body.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+    var received = new ByteArrayOutputStream();
+    for (int i = 0; i < people.size(); i++) {
+      subscriber.subscription.request(1);
+      source.submit(people.get(i));
+      subscriber.awaitNext(i + 1); // each message is published as one buffer
+      var buffer = subscriber.items.poll();
+      var bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      received.writeBytes(bytes);
+    }
+    source.close();
+    subscriber.awaitComplete();
+    var expected = new ByteArrayOutputStream();
+    for (var person : people) {
+      person.writeDelimitedTo(expected);
+    }
+    assertArrayEquals(expected.toByteArray(), received.toByteArray());
+  }
+
+  @Test
+  void deserializeDelimitedMessages() throws IOException {
+    var people = awesomePeople(100);
+    var delimited = new ByteArrayOutputStream();
+    for (var person : people) {
+      person.writeDelimitedTo(delimited);
+    }
+    var subscriber = ProtobufAdapterFactory.createDecoder()
+        .toObject(new TypeRef<Flow.Publisher<AwesomePerson>>() {}, null);
+    var bytes = delimited.toByteArray();
+    var chunks = new ArrayDeque<List<ByteBuffer>>();
+    for (int i = 0; i < bytes.length; i += 7) {
+      chunks.add(List.of(ByteBuffer.wrap(bytes, i, Math.min(7, bytes.length - i)).slice()));
+    }
+    subscriber.onSubscribe(new Subscription() {
+      @Override
+      public void request(long n) {
+        // Upstream is only asked for more when parsing needs it, so just feed the next chunk
+        var chunk = chunks.poll();
+        if (chunk != null) {
+          subscriber.onNext(chunk);
+        } else {
+          subscriber.onComplete();
+        }
+      }
+
+      @Override
+      public void cancel() {}
+    });
+    var messageSubscriber = new TestSubscriber<AwesomePerson>();
+    subscriber.getBody().toCompletableFuture().join().subscribe(messageSubscriber);
+    messageSubscriber.awaitComplete();
+    assertEquals(people, List.copyOf(messageSubscriber.items));
+  }
+
+  @Test
+  void deserializeDelimitedMessages_truncated() throws IOException {
+    var delimited = new ByteArrayOutputStream();
+    awesomePeople(1).get(0).writeDelimitedTo(delimited);
+    var bytes = delimited.toByteArray();
+    var subscriber = ProtobufAdapterFactory.createDecoder()
+        .toObject(new TypeRef<Flow.Publisher<AwesomePerson>>() {}, null);
+    subscriber.onSubscribe(TestUtils.NOOP_SUBSCRIPTION);
+    var messageSubscriber = new TestSubscriber<AwesomePerson>();
+    subscriber.getBody().toCompletableFuture().join().subscribe(messageSubscriber);
+    subscriber.onNext(List.of(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+    subscriber.onComplete();
+    messageSubscriber.awaitError();
+    assertTrue(messageSubscriber.lastError instanceof InvalidProtocolBufferException);
+  }
+
   @Test
   void deserializeMessage_withExtensions() {
     var registry = ExtensionRegistry.newInstance();
@@ -152,6 +295,18 @@ public class ProtobufAdapterTest {
     assertTrue(uioe.getCause() instanceof InvalidProtocolBufferException);
   }
 
+  private static List<AwesomePerson> awesomePeople(int count) {
+    var people = new ArrayList<AwesomePerson>();
+    for (int i = 0; i < count; i++) {
+      people.add(AwesomePerson.newBuilder()
+          .setFirstName("Elon #" + i)
+          .setLastName("Musk".repeat(i)) // varying lengths to cross buffer boundaries
+          .setAge(i)
+          .build());
+    }
+    return people;
+  }
+
   public static <T extends Message> T publishMessage(BodySubscriber<T> subscriber, Message message) {
     subscriber.onSubscribe(TestUtils.NOOP_SUBSCRIPTION);
     subscriber.onNext(List.of(ByteBuffer.wrap(message.toByteArray())));
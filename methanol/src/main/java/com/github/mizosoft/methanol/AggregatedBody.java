@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A fully received response body that is either held in memory or, if it exceeds a memory
+ * threshold, spilled to a temporary file. An {@code AggregatedBody} is obtained with {@link
+ * MoreBodySubscribers#ofAggregatedBody(long)}. The body's content can be read any number of times
+ * through an {@link #inputStream() InputStream}, a {@link #byteChannel() ReadableByteChannel} or
+ * as a {@link #asByteBuffer() ByteBuffer}, which is memory-mapped if the body is spilled.
+ *
+ * <p>The body should be {@link #close() closed} after it's consumed to delete the temporary file,
+ * if any.
+ */
+public final class AggregatedBody implements AutoCloseable {
+
+  private static final long DEFAULT_MEMORY_THRESHOLD = 16 * 1024 * 1024; // 16Mb
+  private static final String MEMORY_THRESHOLD_PROP =
+      "com.github.mizosoft.methanol.AggregatedBody.memoryThreshold";
+  private static final long MEMORY_THRESHOLD = loadMemoryThreshold();
+
+  private final List<ByteBuffer> buffers; // empty if spilled
+  private final @Nullable Path file;
+  private final long size;
+
+  private AggregatedBody(List<ByteBuffer> buffers, @Nullable Path file, long size) {
+    this.buffers = buffers;
+    this.file = file;
+    this.size = size;
+  }
+
+  /** Returns the body's size in bytes. */
+  public long size() {
+    return size;
+  }
+
+  /** Returns {@code true} if the body was spilled to a temporary file. */
+  public boolean isSpilled() {
+    return file != null;
+  }
+
+  /** Returns a new {@code InputStream} that reads the body from the beginning. */
+  public InputStream inputStream() throws IOException {
+    return file != null ? Files.newInputStream(file) : new BuffersInputStream(buffers);
+  }
+
+  /** Returns a new {@code ReadableByteChannel} that reads the body from the beginning. */
+  public ReadableByteChannel byteChannel() throws IOException {
+    return file != null
+        ? FileChannel.open(file, StandardOpenOption.READ)
+        : Channels.newChannel(new BuffersInputStream(buffers));
+  }
+
+  /**
+   * Returns a read-only {@code ByteBuffer} of the body's content. If the body is spilled, the
+   * returned buffer is a memory mapping of the temporary file.
+   *
+   * @throws IOException if the body is too large to fit in a {@code ByteBuffer} or an IO error
+   *     occurs
+   */
+  public ByteBuffer asByteBuffer() throws IOException {
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("body is too large to fit in a ByteBuffer: " + size);
+    }
+    if (file != null) {
+      try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        return channel.map(MapMode.READ_ONLY, 0, size);
+      }
+    }
+    if (buffers.size() == 1) {
+      return buffers.get(0).asReadOnlyBuffer();
+    }
+    var joined = ByteBuffer.allocate((int) size);
+    buffers.forEach(buffer -> joined.put(buffer.duplicate()));
+    return joined.flip().asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns a list of {@code ByteBuffers} that together make up the body's content, without
+   * joining them into a single buffer. If the body is held in memory, the returned buffers are
+   * writable duplicates of the received ones, which keep their backing arrays accessible so the
+   * content can be parsed in place. Each call returns buffers with their own positions and limits,
+   * but all of them share the body's content: writing to a returned buffer changes what's read by
+   * later calls to this and other methods, as well as anything that aliases the content (e.g. a
+   * decoded message). Callers that want to modify the content should copy it first. If the body is
+   * spilled, the returned buffers are read-only memory mappings of consecutive regions of the
+   * temporary file, so the body's size isn't limited by the maximum size of a buffer.
+   */
+  public List<ByteBuffer> asByteBuffers() throws IOException {
+    if (file == null) {
+      var views = new ArrayList<ByteBuffer>(buffers.size());
+      buffers.forEach(buffer -> views.add(buffer.duplicate()));
+      return List.copyOf(views);
+    }
+    var regions = new ArrayList<ByteBuffer>();
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+        regions.add(
+            channel.map(MapMode.READ_ONLY, position, Math.min(size - position, Integer.MAX_VALUE)));
+      }
+    }
+    return List.copyOf(regions);
+  }
+
+  /** Deletes the temporary file if the body was spilled. */
+  @Override
+  public void close() {
+    if (file != null) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /** Returns the default memory threshold used by {@link MoreBodySubscribers#ofAggregatedBody()}. */
+  static long defaultMemoryThreshold() {
+    return MEMORY_THRESHOLD;
+  }
+
+  static BodySubscriber<AggregatedBody> subscriber(long memoryThreshold) {
+    return new AggregatingSubscriber(memoryThreshold);
+  }
+
+  private static long loadMemoryThreshold() {
+    long threshold = Long.getLong(MEMORY_THRESHOLD_PROP, DEFAULT_MEMORY_THRESHOLD);
+    if (threshold < 0) {
+      return DEFAULT_MEMORY_THRESHOLD;
+    }
+    return threshold;
+  }
+
+  /** Reads a list of buffers without consuming them. */
+  private static final class BuffersInputStream extends InputStream {
+
+    private final List<ByteBuffer> buffers;
+    private int index;
+    private @Nullable ByteBuffer current;
+
+    BuffersInputStream(List<ByteBuffer> buffers) {
+      this.buffers = buffers;
+    }
+
+    @Override
+    public int read() {
+      var buffer = currentBuffer();
+      return buffer != null ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      Objects.checkFromIndexSize(off, len, b.length);
+      if (len == 0) {
+        return 0;
+      }
+      var buffer = currentBuffer();
+      if (buffer == null) {
+        return -1;
+      }
+      int read = Math.min(len, buffer.remaining());
+      buffer.get(b, off, read);
+      return read;
+    }
+
+    @Override
+    public int available() {
+      var buffer = currentBuffer();
+      return buffer != null ? buffer.remaining() : 0;
+    }
+
+    private @Nullable ByteBuffer currentBuffer() {
+      var buffer = current;
+      while (buffer == null || !buffer.hasRemaining()) {
+        if (index >= buffers.size()) {
+          return null;
+        }
+        buffer = buffers.get(index++).duplicate();
+        current = buffer;
+      }
+      return buffer;
+    }
+  }
+
+  /**
+   * Collects the body in memory till its size exceeds the memory threshold, after which all
+   * content is written to a temporary file.
+   */
+  private static final class AggregatingSubscriber implements BodySubscriber<AggregatedBody> {
+
+    private final long memoryThreshold;
+    private final Upstream upstream;
+    private final CompletableFuture<AggregatedBody> bodyFuture;
+    private final List<ByteBuffer> buffers;
+    private long size;
+    private @MonotonicNonNull Path file;
+    private @MonotonicNonNull FileChannel fileChannel;
+
+    AggregatingSubscriber(long memoryThreshold) {
+      this.memoryThreshold = memoryThreshold;
+      upstream = new Upstream();
+      bodyFuture = new CompletableFuture<>();
+      buffers = new ArrayList<>();
+    }
+
+    @Override
+    public CompletionStage<AggregatedBody> getBody() {
+      return bodyFuture;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      requireNonNull(subscription);
+      if (upstream.setOrCancel(subscription)) {
+        upstream.request(Long.MAX_VALUE);
+      }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+      requireNonNull(item);
+      if (bodyFuture.isDone()) { // failed to spill
+        return;
+      }
+
+      try {
+        for (var buffer : item) {
+          size += buffer.remaining();
+          var channel = fileChannel;
+          if (channel != null) {
+            writeFully(channel, buffer);
+          } else {
+            buffers.add(buffer);
+            if (size > memoryThreshold) {
+              spill();
+            }
+          }
+        }
+      } catch (IOException e) {
+        upstream.cancel();
+        discardFile();
+        bodyFuture.completeExceptionally(e);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      requireNonNull(throwable);
+      upstream.clear();
+      buffers.clear();
+      discardFile();
+      bodyFuture.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      upstream.clear();
+      var channel = fileChannel;
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          discardFile();
+          bodyFuture.completeExceptionally(e);
+          return;
+        }
+        bodyFuture.complete(new AggregatedBody(List.of(), file, size));
+      } else {
+        bodyFuture.complete(new AggregatedBody(List.copyOf(buffers), null, size));
+      }
+    }
+
+    private void spill() throws IOException {
+      var tempFile = Files.createTempFile("methanol-", ".body");
+      file = tempFile;
+      var channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+      fileChannel = channel;
+      for (var buffer : buffers) {
+        writeFully(channel, buffer);
+      }
+      buffers.clear();
+    }
+
+    private void discardFile() {
+      var channel = fileChannel;
+      var tempFile = file;
+      try {
+        if (channel != null) {
+          channel.close();
+        }
+        if (tempFile != null) {
+          Files.deleteIfExists(tempFile);
+        }
+      } catch (IOException ignored) {
+        // The body is failed anyways
+      }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+}
@@ -60,11 +60,15 @@ public interface BodyAdapter {
    */
   boolean supportsType(TypeRef<?> type);
 
-  private static <A extends BodyAdapter> Optional<A> lookupAdapter(
-      List<A> installed, TypeRef<?> type, @Nullable MediaType mediaType) {
-    return installed.stream()
-        .filter(a -> a.supportsType(type) && (mediaType == null || a.isCompatibleWith(mediaType)))
-        .findFirst();
+  /**
+   * Discards the cached results of {@link Encoder#getEncoder(TypeRef, MediaType)} and {@link
+   * Decoder#getDecoder(TypeRef, MediaType)}. Lookups are cached per type and media type as finding
+   * a supporting adapter can be expensive (e.g. when the underlying library resolves the type).
+   * This method should be called if an installed adapter changes the types or media types it
+   * supports, for instance after a module is registered with the adapter's underlying mapper.
+   */
+  static void clearLookupCache() {
+    BodyAdapterFinder.clearLookupCache();
   }
 
   /** {@code BodyAdapter} specialization for converting objects into request bodies. */
@@ -90,13 +94,14 @@ public interface BodyAdapter {
     /**
      * Returns an {@code Optional} containing an {@code Encoder} that supports the given object type
      * and media type. If {@code mediaType} is {@code null}, any encoder supporting the given type
-     * will be returned.
+     * will be returned. The result is cached for subsequent lookups with the same type and media
+     * type.
      *
      * @param type the object type
      * @param mediaType an optional media type defining the serialization format
      */
     static Optional<Encoder> getEncoder(TypeRef<?> type, @Nullable MediaType mediaType) {
-      return BodyAdapter.lookupAdapter(installed(), type, mediaType);
+      return BodyAdapterFinder.findEncoder(type, mediaType);
     }
   }
 
@@ -149,13 +154,14 @@ public interface BodyAdapter {
     /**
      * Returns an {@code Optional} containing a {@code Decoder} that supports the given object type
      * and media type. If {@code mediaType} is {@code null}, any decoder supporting the given type
-     * will be returned.
+     * will be returned. The result is cached for subsequent lookups with the same type and media
+     * type.
      *
      * @param type the object type
      * @param mediaType an optional media type defining the deserialization format
      */
     static Optional<Decoder> getDecoder(TypeRef<?> type, @Nullable MediaType mediaType) {
-      return BodyAdapter.lookupAdapter(installed(), type, mediaType);
+      return BodyAdapterFinder.findDecoder(type, mediaType);
     }
   }
 }
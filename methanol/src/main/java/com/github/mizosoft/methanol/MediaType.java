@@ -109,6 +109,9 @@ public final class MediaType {
 
   /*---Application types---*/
 
+  /** {@code application/cbor} */
+  public static final MediaType APPLICATION_CBOR = new MediaType(APPLICATION_TYPE, "cbor");
+
   /** {@code application/x-www-form-urlencoded} */
   public static final MediaType APPLICATION_FORM_URLENCODED =
       new MediaType(APPLICATION_TYPE, "x-www-form-urlencoded");
@@ -127,6 +130,10 @@ public final class MediaType {
   /** {@code application/xml} */
   public static final MediaType APPLICATION_XML = new MediaType(APPLICATION_TYPE, "xml");
 
+  /** {@code application/x-jackson-smile} */
+  public static final MediaType APPLICATION_X_JACKSON_SMILE =
+      new MediaType(APPLICATION_TYPE, "x-jackson-smile");
+
   /** {@code application/x-protobuf} */
   public static final MediaType APPLICATION_X_PROTOBUF =
       new MediaType(APPLICATION_TYPE, "x-protobuf");
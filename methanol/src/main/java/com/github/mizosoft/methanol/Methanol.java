@@ -30,7 +30,10 @@ import static java.util.Objects.requireNonNull;
 
 import com.github.mizosoft.methanol.BodyDecoder.Factory;
 import com.github.mizosoft.methanol.MutableRequest.HeadersBuilder;
+import com.github.mizosoft.methanol.ProgressTracker.Listener;
 import com.github.mizosoft.methanol.internal.extensions.HttpResponsePublisher;
+import com.github.mizosoft.methanol.internal.extensions.ResumableDownload;
+import com.github.mizosoft.methanol.internal.extensions.SegmentedDownload;
 import com.github.mizosoft.methanol.internal.flow.FlowSupport;
 import java.io.IOException;
 import java.net.Authenticator;
@@ -43,6 +46,7 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.PushPromiseHandler;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Locale;
 import java.util.Optional;
@@ -68,6 +72,8 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  *   <li>Add a set of default HTTP headers for inclusion in requests if absent.
  *   <li>{@link BaseBuilder#autoAcceptEncoding(boolean) Transparent} response decompression.
  *   <li>Get {@code Publisher<HttpResponse<T>>} for asynchronous requests.
+ *   <li>{@link #downloadAsync(URI, Path, int) Download} large resources over concurrent range
+ *       requests, or {@link #resumableDownloadAsync(URI, Path) resume} interrupted downloads.
  * </ul>
  */
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
@@ -131,6 +137,58 @@ public final class Methanol extends HttpClient {
         executor().orElse(FlowSupport.SYNC_EXECUTOR));
   }
 
+  /**
+   * Asynchronously downloads the resource at the given {@code URI} into the given file, using up to
+   * {@code segments} concurrent requests each fetching a range of the resource. The server is first
+   * probed with a {@code HEAD} request to check that it supports byte ranges and to know the
+   * resource's length. If either is not the case, the resource is downloaded with a single request.
+   * The returned future completes with the given file when the download is complete, or fails
+   * with an {@code IOException} if an unsuccessful response is received.
+   *
+   * @throws IllegalArgumentException if {@code segments} is not positive
+   */
+  public CompletableFuture<Path> downloadAsync(URI uri, Path file, int segments) {
+    requireNonNull(uri, "uri");
+    requireNonNull(file, "file");
+    requireArgument(segments > 0, "non-positive segments: %s", segments);
+    return new SegmentedDownload(this, uri, file, segments, null, null).start();
+  }
+
+  /**
+   * Same as {@link #downloadAsync(URI, Path, int)} but tracks the download progress of all
+   * segments combined with the given tracker.
+   *
+   * @throws IllegalArgumentException if {@code segments} is not positive
+   */
+  public CompletableFuture<Path> downloadAsync(
+      URI uri, Path file, int segments, ProgressTracker tracker, Listener listener) {
+    requireNonNull(uri, "uri");
+    requireNonNull(file, "file");
+    requireArgument(segments > 0, "non-positive segments: %s", segments);
+    requireNonNull(tracker, "tracker");
+    requireNonNull(listener, "listener");
+    return new SegmentedDownload(this, uri, file, segments, tracker, listener).start();
+  }
+
+  /**
+   * Asynchronously downloads the resource at the given {@code URI} into the given file such that
+   * the download can be resumed if it fails midway. While downloading, the number of bytes written
+   * so far is periodically recorded, along with the resource's {@code ETag} or {@code
+   * Last-Modified} validator, in a checkpoint file next to the given file (named after it with a
+   * {@code .checkpoint} suffix). If such a checkpoint exists when this method is called, only the
+   * remaining part of the resource is requested with a {@code Range} request that is conditional
+   * on the recorded validator (via {@code If-Range}). If the server responds with the whole
+   * resource instead, the file is rewritten from the beginning. The checkpoint is deleted when the
+   * download completes.
+   *
+   * <p>Note that a checkpoint is only recorded if the server provides a strong validator.
+   */
+  public CompletableFuture<Path> resumableDownloadAsync(URI uri, Path file) {
+    requireNonNull(uri, "uri");
+    requireNonNull(file, "file");
+    return new ResumableDownload(this, uri, file).start();
+  }
+
   /** Returns the underlying {@code HttpClient} used for sending requests. */
   public HttpClient underlyingClient() {
     return client;
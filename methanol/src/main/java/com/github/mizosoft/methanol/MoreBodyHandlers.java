@@ -22,19 +22,23 @@
 
 package com.github.mizosoft.methanol;
 
+import static com.github.mizosoft.methanol.internal.Validate.requireArgument;
 import static java.util.Objects.requireNonNull;
 
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
 import com.github.mizosoft.methanol.internal.extensions.ImmutableResponseInfo;
+import com.github.mizosoft.methanol.internal.extensions.VerifyingSubscriber;
 import java.io.Reader;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpResponse.BodyHandler;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.ResponseInfo;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
@@ -42,6 +46,7 @@ import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -122,6 +127,93 @@ public class MoreBodyHandlers {
     return info -> MoreBodySubscribers.ofReader(charset);
   }
 
+  /**
+   * Returns a {@code BodyHandler} of {@code MappedByteBuffer} as specified by {@link
+   * MoreBodySubscribers#ofMappedFile(Path, long)} using the {@code Content-Length} response header,
+   * if present, as the body's length.
+   *
+   * @param file the file into which the response body is written
+   */
+  public static BodyHandler<MappedByteBuffer> ofMappedFile(Path file) {
+    requireNonNull(file);
+    return info ->
+        MoreBodySubscribers.ofMappedFile(
+            file, info.headers().firstValueAsLong("Content-Length").orElse(-1));
+  }
+
+  /**
+   * Returns a {@code BodyHandler} that verifies the digest of the response body passed to the
+   * subscriber returned by the given handler, as specified by {@link
+   * MoreBodySubscribers#verifying(BodySubscriber, String, byte[])}.
+   *
+   * @param handler the handler whose body is verified
+   * @param algorithm the digest algorithm
+   * @param expected the expected digest
+   * @param <T> the body type
+   * @throws IllegalArgumentException if the algorithm is not supported
+   */
+  public static <T> BodyHandler<T> verifying(
+      BodyHandler<T> handler, String algorithm, byte[] expected) {
+    requireNonNull(handler, "handler");
+    requireNonNull(expected, "expected");
+    VerifyingSubscriber.requireSupportedAlgorithm(algorithm);
+    byte[] expectedCopy = expected.clone();
+    return info -> MoreBodySubscribers.verifying(handler.apply(info), algorithm, expectedCopy);
+  }
+
+  /**
+   * Returns a {@code BodyHandler} that forwards the response body to the subscribers returned by
+   * the given handlers and combines their bodies, as specified by {@link
+   * MoreBodySubscribers#tee(BodySubscriber, BodySubscriber, BiFunction)}.
+   *
+   * @param first the first handler
+   * @param second the second handler
+   * @param combiner the function combining both bodies
+   * @param <A> the first body type
+   * @param <B> the second body type
+   * @param <T> the combined body type
+   */
+  public static <A, B, T> BodyHandler<T> tee(
+      BodyHandler<A> first,
+      BodyHandler<B> second,
+      BiFunction<? super A, ? super B, ? extends T> combiner) {
+    requireNonNull(first, "first");
+    requireNonNull(second, "second");
+    requireNonNull(combiner, "combiner");
+    return info -> MoreBodySubscribers.tee(first.apply(info), second.apply(info), combiner);
+  }
+
+  /**
+   * Returns a {@code BodyHandler} of {@code List<ByteBuffer>} as specified by {@link
+   * MoreBodySubscribers#ofByteBuffers(long)} using the {@code Content-Length} response header, if
+   * present, as the body's length.
+   */
+  public static BodyHandler<List<ByteBuffer>> ofByteBuffers() {
+    return info ->
+        MoreBodySubscribers.ofByteBuffers(
+            info.headers().firstValueAsLong("Content-Length").orElse(-1));
+  }
+
+  /**
+   * Returns a {@code BodyHandler} of {@code AggregatedBody} as specified by {@link
+   * MoreBodySubscribers#ofAggregatedBody()}.
+   */
+  public static BodyHandler<AggregatedBody> ofAggregatedBody() {
+    return info -> MoreBodySubscribers.ofAggregatedBody();
+  }
+
+  /**
+   * Returns a {@code BodyHandler} of {@code AggregatedBody} as specified by {@link
+   * MoreBodySubscribers#ofAggregatedBody(long)}.
+   *
+   * @param memoryThreshold the maximum number of bytes held in memory
+   * @throws IllegalArgumentException if {@code memoryThreshold} is negative
+   */
+  public static BodyHandler<AggregatedBody> ofAggregatedBody(long memoryThreshold) {
+    requireArgument(memoryThreshold >= 0, "negative memory threshold: %s", memoryThreshold);
+    return info -> MoreBodySubscribers.ofAggregatedBody(memoryThreshold);
+  }
+
   /**
    * Returns a {@code BodyHandler} of {@code T} as specified by {@link
    * MoreBodySubscribers#ofObject(TypeRef, MediaType)}. The media type will inferred from the {@code
@@ -22,9 +22,29 @@
 
 package com.github.mizosoft.methanol;
 
+import static com.github.mizosoft.methanol.internal.Validate.requireArgument;
+import static java.util.Objects.requireNonNull;
+
 import com.github.mizosoft.methanol.BodyAdapter.Encoder;
+import com.github.mizosoft.methanol.internal.extensions.AsyncFileBodyPublisher;
 import com.github.mizosoft.methanol.internal.extensions.ForwardingMimeBodyPublisher;
+import com.github.mizosoft.methanol.internal.extensions.InputStreamBodyPublisher;
+import com.github.mizosoft.methanol.internal.extensions.RelayBodyPublisher;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow.Publisher;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Provides additional {@link BodyPublisher} implementations. */
@@ -60,6 +80,105 @@ public class MoreBodyPublishers {
     return encoder.toBody(object, mediaType);
   }
 
+  /**
+   * Returns a {@code BodyPublisher} that reads the given file asynchronously using the {@link
+   * FileOptions#defaults() default options}.
+   *
+   * @param file the file
+   * @throws FileNotFoundException if the file doesn't exist
+   */
+  public static BodyPublisher ofFile(Path file) throws FileNotFoundException {
+    return ofFile(file, FileOptions.defaults());
+  }
+
+  /**
+   * Returns a {@code BodyPublisher} that reads the given file asynchronously as specified by the
+   * given options. Unlike {@link java.net.http.HttpRequest.BodyPublishers#ofFile(Path)}, the file
+   * is read with an {@link java.nio.channels.AsynchronousFileChannel} rather than with blocking
+   * reads on the thread requesting data, keeping up to {@link FileOptions#readAhead() readAhead}
+   * chunks read ahead of the subscriber's demand.
+   *
+   * @param file the file
+   * @param options the options
+   * @throws FileNotFoundException if the file doesn't exist
+   */
+  public static BodyPublisher ofFile(Path file, FileOptions options)
+      throws FileNotFoundException {
+    requireNonNull(file, "file");
+    requireNonNull(options, "options");
+    if (!Files.exists(file)) {
+      throw new FileNotFoundException(file + " not found");
+    }
+    return new AsyncFileBodyPublisher(
+        file,
+        options.bufferSize,
+        options.readAhead,
+        options.memoryMapThreshold,
+        options.recycleBuffers,
+        options.executor);
+  }
+
+  /**
+   * Returns a {@code BodyPublisher} that reads the stream returned by the given supplier on the
+   * given executor. Unlike {@link java.net.http.HttpRequest.BodyPublishers#ofInputStream(Supplier)},
+   * blocking reads are never run on the threads requesting the body, which are usually the
+   * client's threads. Instead, up to {@code readAhead} chunks are kept read ahead of demand, so a
+   * slow stream doesn't hold back the client. The supplier is called once for each subscription and
+   * the stream is closed when it's exhausted or the subscription is cancelled.
+   *
+   * @param streamSupplier the supplier of the stream
+   * @param executor the executor on which the stream is read
+   * @param readAhead the maximum number of chunks read ahead of demand
+   * @throws IllegalArgumentException if {@code readAhead} is not positive
+   */
+  public static BodyPublisher ofInputStream(
+      Supplier<? extends InputStream> streamSupplier, Executor executor, int readAhead) {
+    requireNonNull(streamSupplier, "streamSupplier");
+    requireNonNull(executor, "executor");
+    requireArgument(readAhead > 0, "non-positive read ahead: %s", readAhead);
+    return new InputStreamBodyPublisher(
+        streamSupplier, executor, FileOptions.DEFAULT_BUFFER_SIZE, readAhead);
+  }
+
+  /**
+   * Returns a {@code BodyPublisher} that relays the buffers published by the given publisher, which
+   * is typically the body of an in-flight response obtained with {@link
+   * java.net.http.HttpResponse.BodyHandlers#ofPublisher()}. Buffers are passed as they are without
+   * copying, and the next list of buffers is only requested from the source after the previous one
+   * has been consumed, so backpressure propagates from the request's connection to the source.
+   *
+   * <p>As the source can usually be consumed only once, the returned publisher can only be
+   * subscribed to once. Subsequent subscribers (e.g. due to a retry or a redirect that resends the
+   * request body) are completed with an {@code IllegalStateException}.
+   *
+   * @param source the source of the body
+   * @param contentLength the body's length, or a negative value if unknown
+   */
+  public static BodyPublisher fromPublisher(
+      Publisher<List<ByteBuffer>> source, long contentLength) {
+    requireNonNull(source);
+    return new RelayBodyPublisher(source, contentLength);
+  }
+
+  /**
+   * Returns a {@code BodyPublisher} that relays the given response's body as specified by {@link
+   * #fromPublisher(Publisher, long)}. The body's length is taken from the response's {@code
+   * Content-Length} header, if present. If the response has a {@code Content-Type} header, the
+   * returned publisher is a {@link MimeBodyPublisher} with the response's media type.
+   *
+   * @param response the response whose body is relayed
+   */
+  public static BodyPublisher fromResponse(HttpResponse<Publisher<List<ByteBuffer>>> response) {
+    requireNonNull(response);
+    HttpHeaders headers = response.headers();
+    BodyPublisher publisher =
+        fromPublisher(response.body(), headers.firstValueAsLong("Content-Length").orElse(-1));
+    return headers
+        .firstValue("Content-Type")
+        .<BodyPublisher>map(contentType -> ofMediaType(publisher, MediaType.parse(contentType)))
+        .orElse(publisher);
+  }
+
   private static UnsupportedOperationException unsupportedConversion(
       TypeRef<?> type, @Nullable MediaType mediaType) {
     String message = "unsupported conversion from an object type <" + type + ">";
@@ -68,4 +187,139 @@ public class MoreBodyPublishers {
     }
     return new UnsupportedOperationException(message);
   }
+
+  /** Options for reading a file with {@link #ofFile(Path, FileOptions)}. */
+  public static final class FileOptions {
+
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024; // 16Kb
+    private static final int DEFAULT_READ_AHEAD = 4;
+    private static final FileOptions DEFAULTS = newBuilder().build();
+
+    private final int bufferSize;
+    private final int readAhead;
+    private final long memoryMapThreshold;
+    private final boolean recycleBuffers;
+    private final @Nullable ExecutorService executor;
+
+    private FileOptions(Builder builder) {
+      bufferSize = builder.bufferSize;
+      readAhead = builder.readAhead;
+      memoryMapThreshold = builder.memoryMapThreshold;
+      recycleBuffers = builder.recycleBuffers;
+      executor = builder.executor;
+    }
+
+    /** Returns the size of each read chunk. */
+    public int bufferSize() {
+      return bufferSize;
+    }
+
+    /** Returns the maximum number of chunks read ahead of downstream demand. */
+    public int readAhead() {
+      return readAhead;
+    }
+
+    /**
+     * Returns the minimum size of a file for it to be memory-mapped rather than read, or {@code
+     * Long.MAX_VALUE} if files are never mapped.
+     */
+    public long memoryMapThreshold() {
+      return memoryMapThreshold;
+    }
+
+    /** Returns whether buffers fully consumed by the subscriber are reused for later reads. */
+    public boolean recycleBuffers() {
+      return recycleBuffers;
+    }
+
+    /** Returns the optional executor used by the file channel for handling IO events. */
+    public Optional<ExecutorService> executor() {
+      return Optional.ofNullable(executor);
+    }
+
+    /** Returns the default options. */
+    public static FileOptions defaults() {
+      return DEFAULTS;
+    }
+
+    /** Returns a new {@code FileOptions.Builder}. */
+    public static Builder newBuilder() {
+      return new Builder();
+    }
+
+    /** A builder of {@code FileOptions}. */
+    public static final class Builder {
+
+      private int bufferSize;
+      private int readAhead;
+      private long memoryMapThreshold;
+      private boolean recycleBuffers;
+      private @MonotonicNonNull ExecutorService executor;
+
+      Builder() {
+        bufferSize = DEFAULT_BUFFER_SIZE;
+        readAhead = DEFAULT_READ_AHEAD;
+        memoryMapThreshold = Long.MAX_VALUE;
+      }
+
+      /**
+       * Sets the size of each read chunk. The default is 16Kb.
+       *
+       * @throws IllegalArgumentException if size is not positive
+       */
+      public Builder bufferSize(int bufferSize) {
+        requireArgument(bufferSize > 0, "non-positive buffer size: %s", bufferSize);
+        this.bufferSize = bufferSize;
+        return this;
+      }
+
+      /**
+       * Sets the maximum number of chunks read ahead of downstream demand. The default is 4.
+       *
+       * @throws IllegalArgumentException if {@code readAhead} is not positive
+       */
+      public Builder readAhead(int readAhead) {
+        requireArgument(readAhead > 0, "non-positive read ahead: %s", readAhead);
+        this.readAhead = readAhead;
+        return this;
+      }
+
+      /**
+       * Sets the minimum size of a file for it to be memory-mapped rather than read, in which case
+       * the subscriber receives slices of the mapped file. By default, files are never mapped.
+       *
+       * @throws IllegalArgumentException if {@code threshold} is negative
+       */
+      public Builder memoryMapThreshold(long threshold) {
+        requireArgument(threshold >= 0, "negative threshold: %s", threshold);
+        this.memoryMapThreshold = threshold;
+        return this;
+      }
+
+      /**
+       * If set to {@code true}, buffers that are fully consumed by the subscriber by the time it
+       * requests more chunks are reused for later reads instead of allocating new ones. Only
+       * enable this if the subscriber doesn't retain published buffers after consuming them. The
+       * default is {@code false}.
+       */
+      public Builder recycleBuffers(boolean recycleBuffers) {
+        this.recycleBuffers = recycleBuffers;
+        return this;
+      }
+
+      /**
+       * Sets the executor used by the file channel for handling IO events. If not set, the
+       * channel's default thread pool is used.
+       */
+      public Builder executor(ExecutorService executor) {
+        this.executor = requireNonNull(executor);
+        return this;
+      }
+
+      /** Builds a new {@code FileOptions}. */
+      public FileOptions build() {
+        return new FileOptions(this);
+      }
+    }
+  }
 }
@@ -22,26 +22,35 @@
 
 package com.github.mizosoft.methanol;
 
+import static com.github.mizosoft.methanol.internal.Validate.requireArgument;
 import static com.github.mizosoft.methanol.internal.Utils.requirePositiveDuration;
 import static java.util.Objects.requireNonNull;
 
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
 import com.github.mizosoft.methanol.internal.extensions.AsyncSubscriberAdapter;
+import com.github.mizosoft.methanol.internal.extensions.ByteBuffersSubscriber;
 import com.github.mizosoft.methanol.internal.extensions.ByteChannelSubscriber;
+import com.github.mizosoft.methanol.internal.extensions.MappedFileSubscriber;
+import com.github.mizosoft.methanol.internal.extensions.TeeSubscriber;
 import com.github.mizosoft.methanol.internal.extensions.TimeoutSubscriber;
+import com.github.mizosoft.methanol.internal.extensions.VerifyingSubscriber;
 import java.io.Reader;
 import java.net.http.HttpResponse.BodySubscriber;
 import java.net.http.HttpResponse.BodySubscribers;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.InterruptibleChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -128,6 +137,139 @@ public class MoreBodySubscribers {
     return BodySubscribers.mapping(ofByteChannel(), ch -> Channels.newReader(ch, charset));
   }
 
+  /**
+   * Returns a {@code BodySubscriber} that writes the response body into the given file and
+   * completes with a {@link MappedByteBuffer} of the file's content. If the given content length is
+   * known (not negative), the file is preallocated and mapped beforehand, and the body is copied
+   * directly into the mapped region without issuing a write for each received buffer. In such
+   * case, the body fails with an {@code IOException} if it doesn't match the given length.
+   * Otherwise, the body is written to the file as it's received and the file is mapped afterwards.
+   *
+   * <p>Note that the body must be at most {@code Integer.MAX_VALUE} bytes to be mapped.
+   *
+   * @param file the file
+   * @param contentLength the body's length, or a negative value if unknown
+   */
+  public static BodySubscriber<MappedByteBuffer> ofMappedFile(Path file, long contentLength) {
+    requireNonNull(file);
+    return new MappedFileSubscriber(file, contentLength);
+  }
+
+  /**
+   * Returns a {@code BodySubscriber} that computes a digest of the response body as it's passed to
+   * the given downstream, and completes the downstream with an {@code IOException} if the computed
+   * digest doesn't match the expected one. The digest is computed inline, so verifying the body
+   * doesn't require another pass over it after it's received.
+   *
+   * <p>The algorithm is either a {@link MessageDigest} algorithm name (e.g. {@code SHA-256} or
+   * {@code MD5}) or {@code CRC32C}, in which case the checksum is computed with {@link
+   * java.util.zip.CRC32C} and the expected value is its 4 bytes in big-endian order.
+   *
+   * @param downstream the subscriber receiving the response body
+   * @param algorithm the digest algorithm
+   * @param expected the expected digest
+   * @param <T> the body type
+   * @throws IllegalArgumentException if the algorithm is not supported
+   */
+  public static <T> BodySubscriber<T> verifying(
+      BodySubscriber<T> downstream, String algorithm, byte[] expected) {
+    requireNonNull(downstream, "downstream");
+    requireNonNull(expected, "expected");
+    return new VerifyingSubscriber<>(downstream, algorithm, expected);
+  }
+
+  /**
+   * Returns a {@code BodySubscriber} that forwards the response body to each of the given
+   * subscribers and completes with the list of their bodies, in the same order. The body is
+   * consumed at the pace of the slowest subscriber, and at most a small, bounded number of buffer
+   * lists are held for subscribers that are ahead of it. Each subscriber receives its own
+   * duplicates of the received buffers, so the body is not copied. The returned body completes
+   * exceptionally as soon as any of the given subscribers' bodies does.
+   *
+   * <p>A subscriber that cancels its subscription no longer holds back the others. The upstream
+   * is only cancelled if all subscribers cancel.
+   *
+   * @param downstreams the subscribers receiving the response body
+   * @param <T> the body type
+   * @throws IllegalArgumentException if {@code downstreams} is empty
+   */
+  public static <T> BodySubscriber<List<T>> tee(
+      List<? extends BodySubscriber<? extends T>> downstreams) {
+    requireArgument(!downstreams.isEmpty(), "no downstream subscribers");
+    return new TeeSubscriber<>(downstreams);
+  }
+
+  /**
+   * Returns a {@code BodySubscriber} that forwards the response body to the given subscribers as
+   * specified by {@link #tee(List)}, and combines their bodies with the given function.
+   *
+   * @param first the first subscriber
+   * @param second the second subscriber
+   * @param combiner the function combining both bodies
+   * @param <A> the first body type
+   * @param <B> the second body type
+   * @param <T> the combined body type
+   */
+  @SuppressWarnings("unchecked")
+  public static <A, B, T> BodySubscriber<T> tee(
+      BodySubscriber<A> first,
+      BodySubscriber<B> second,
+      BiFunction<? super A, ? super B, ? extends T> combiner) {
+    requireNonNull(first, "first");
+    requireNonNull(second, "second");
+    requireNonNull(combiner, "combiner");
+    return BodySubscribers.mapping(
+        new TeeSubscriber<>(List.of(first, second)),
+        bodies -> combiner.apply((A) bodies.get(0), (B) bodies.get(1)));
+  }
+
+  /**
+   * Returns a {@code BodySubscriber} that aggregates the response body into a list of read-only
+   * {@code ByteBuffers}. Unlike {@link BodySubscribers#ofByteArray()}, received buffers are not
+   * joined into a single array after the body is received, so no extra copy is made.
+   */
+  public static BodySubscriber<List<ByteBuffer>> ofByteBuffers() {
+    return new ByteBuffersSubscriber(-1);
+  }
+
+  /**
+   * Returns a {@code BodySubscriber} that aggregates the response body into a list of read-only
+   * {@code ByteBuffers}. If the given content length is known (not negative), the body fails with
+   * an {@code IOException} if it doesn't match that length. Additionally, if the length doesn't
+   * exceed 1Mb, the body is copied as it's received into a single buffer of that length, and the
+   * returned list contains only that buffer. The buffer is only allocated when the body starts
+   * arriving. Otherwise, the returned list is a view over the received buffers, so a large length
+   * from an untrusted source doesn't cause a large allocation up front.
+   *
+   * @param contentLength the body's length, or a negative value if unknown
+   */
+  public static BodySubscriber<List<ByteBuffer>> ofByteBuffers(long contentLength) {
+    return new ByteBuffersSubscriber(contentLength);
+  }
+
+  /**
+   * Returns a {@code BodySubscriber} that aggregates the response body into an {@link
+   * AggregatedBody}, which is spilled to a temporary file if its size exceeds a default memory
+   * threshold. The default threshold is 16Mb and can be changed with the {@code
+   * com.github.mizosoft.methanol.AggregatedBody.memoryThreshold} system property.
+   */
+  public static BodySubscriber<AggregatedBody> ofAggregatedBody() {
+    return AggregatedBody.subscriber(AggregatedBody.defaultMemoryThreshold());
+  }
+
+  /**
+   * Returns a {@code BodySubscriber} that aggregates the response body into an {@link
+   * AggregatedBody}, which is spilled to a temporary file if its size exceeds the given memory
+   * threshold.
+   *
+   * @param memoryThreshold the maximum number of bytes held in memory
+   * @throws IllegalArgumentException if {@code memoryThreshold} is negative
+   */
+  public static BodySubscriber<AggregatedBody> ofAggregatedBody(long memoryThreshold) {
+    requireArgument(memoryThreshold >= 0, "negative memory threshold: %s", memoryThreshold);
+    return AggregatedBody.subscriber(memoryThreshold);
+  }
+
   /**
    * Returns a {@code BodySubscriber} of {@code T} as specified by {@link
    * Decoder#toObject(TypeRef, MediaType)} using an installed decoder.
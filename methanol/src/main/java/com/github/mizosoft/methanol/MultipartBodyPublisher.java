@@ -350,7 +350,7 @@ public final class MultipartBodyPublisher implements MimeBodyPublisher {
       @Nullable Path filenameComponent = file.getFileName();
       String filename = filenameComponent != null ? filenameComponent.toString() : "";
       MimeBodyPublisher publisher =
-          MoreBodyPublishers.ofMediaType(BodyPublishers.ofFile(file), mediaType);
+          MoreBodyPublishers.ofMediaType(MoreBodyPublishers.ofFile(file), mediaType);
       return formPart(name, filename, publisher);
     }
 
@@ -497,6 +497,11 @@ public final class ProgressTracker {
         }
       }
 
+      @Override
+      protected boolean hasQueuedItems() {
+        return !progressEvents.isEmpty();
+      }
+
       @Override
       protected void abort(boolean flowInterrupted) {
         // make parent loose reference to `this`
@@ -531,8 +536,10 @@ public final class ProgressTracker {
       }
 
       void signalProgress(Progress progress) {
-        progressEvents.offer(progress);
-        signal(false); // signal drain task
+        if (!trySubmitInline(progress)) {
+          progressEvents.offer(progress);
+          signal(false); // signal drain task
+        }
       }
 
       void signalCompletion() {
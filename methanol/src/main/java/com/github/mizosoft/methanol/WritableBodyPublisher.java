@@ -19,9 +19,9 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-
 package com.github.mizosoft.methanol;
 
+import static com.github.mizosoft.methanol.internal.Validate.requireArgument;
 import static com.github.mizosoft.methanol.internal.Validate.requireState;
 import static java.util.Objects.requireNonNull;
 
@@ -30,16 +30,19 @@ import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
 import com.github.mizosoft.methanol.internal.flow.FlowSupport;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.http.HttpRequest.BodyPublisher;
-import java.net.http.HttpRequest.BodyPublishers;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousCloseException;
-import java.nio.channels.Channels;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Flow.Publisher;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
@@ -51,11 +54,26 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * the publisher must be closed to complete the request (either by calling {@link #close()} or
  * closing one of the returned sinks, or using a try-with-resources construct). Additionally, {@link
  * #closeExceptionally(Throwable)} can be used to fail the request in case an error is encountered
- * while writing.
+ * while writing. The publisher is also closed if the subscriber cancels its subscription, in which
+ * case further writes fail with a {@link ClosedChannelException}.
+ *
+ * <p>By default, written content is buffered regardless of how fast it is consumed. A publisher
+ * with a {@link Builder#capacity(long) capacity} limits the number of bytes that are written but
+ * not yet consumed by the subscriber. When such limit is reached, writes either block until enough
+ * content is consumed, or, if the publisher is not {@link Builder#blocking(boolean) blocking},
+ * return early with the number of bytes that could be written (possibly {@code 0}).
+ *
+ * <p>Producers that must not block (e.g. ones running on an event loop) can use {@link
+ * #writeAsync(ByteBuffer)}, which returns a future that completes when all of the buffer's bytes
+ * are accepted within capacity, or {@link #transferAsync(ByteBuffer)}, which hands over the
+ * buffer itself to be published without copying.
  *
- * <p>Note that ({@link #contentLength()} always returns {@code -1}). If the content length is known
- * prior to writing, {@link BodyPublishers#fromPublisher(Publisher, long)} can be used to attach
- * the the known length to this publisher.
+ * <p>By default, {@link #contentLength()} returns {@code -1}, so the request is sent with chunked
+ * transfer encoding. If the content length is known prior to writing, the publisher can be {@link
+ * #create(long) created} with that length, in which case exactly that many bytes must be written.
+ * A write that would exceed the content length fails with an {@code IOException}, and closing the
+ * publisher before the whole content is written fails the request. In both cases, the subscriber
+ * is failed with the same error.
  */
 public final class WritableBodyPublisher implements BodyPublisher, Flushable, AutoCloseable {
 
@@ -64,8 +82,13 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
       "com.github.mizosoft.methanol.WritableBodyPublisher.sinkBufferSize";
   private static final int SINK_BUFFER_SIZE = getSinkBufferSize();
 
+  private static final long UNBOUNDED_CAPACITY = Long.MAX_VALUE;
+
   private static final ByteBuffer CLOSED = ByteBuffer.allocate(0);
 
+  private final long capacity;
+  private final boolean blocking;
+  private final long contentLength;
   private final AtomicBoolean subscribed;
   private final ConcurrentLinkedQueue<ByteBuffer> pipe;
   private volatile @Nullable SubscriptionImpl downstreamSubscription;
@@ -76,11 +99,20 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
   private @MonotonicNonNull WritableByteChannel sinkChannel;
   private @MonotonicNonNull OutputStream sinkOutputStream;
   private @Nullable ByteBuffer sinkBuffer;
-
-  private WritableBodyPublisher() {
+  private long bufferedBytes; // written but not yet submitted bytes, tracked if bounded
+  private long writtenBytes;
+  private long pendingBytes; // remaining bytes of pending async writes
+  private final ArrayDeque<AsyncWrite> pendingWrites; // waiting for capacity
+  private boolean closePending; // closed normally but waiting for pending writes to be accepted
+
+  private WritableBodyPublisher(long capacity, boolean blocking, long contentLength) {
+    this.capacity = capacity;
+    this.blocking = blocking;
+    this.contentLength = contentLength;
     subscribed = new AtomicBoolean();
     pipe = new ConcurrentLinkedQueue<>();
     writeLock = new Object();
+    pendingWrites = new ArrayDeque<>();
   }
 
   /** Returns a {@code WritableByteChannel} for writing this body's content. */
@@ -93,16 +125,50 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
     return channel;
   }
 
-  /** Returns a {@code OutputStream} for writing this body's content. */
+  /**
+   * Returns a {@code OutputStream} for writing this body's content. Writes to the returned stream
+   * block if capacity is exhausted even if this publisher is not {@link Builder#blocking(boolean)
+   * blocking}.
+   */
   public OutputStream outputStream() {
     OutputStream out = sinkOutputStream;
     if (out == null) {
-      out = new SinkChannelAdapter(byteChannel());
+      out = new SinkOutputStream();
       sinkOutputStream = out;
     }
     return out;
   }
 
+  /**
+   * Asynchronously writes the given buffer's content. The returned future completes with the
+   * number of written bytes when all the buffer's remaining bytes are accepted within this
+   * publisher's capacity, which is immediately if capacity is unbounded. The buffer must not be
+   * modified till the future completes. Writes issued while others are still pending are accepted
+   * in order. Writes that are pending when this publisher is {@link #close() closed} are still
+   * accepted before the subscriber is completed. If this publisher is instead {@link
+   * #closeExceptionally(Throwable) closed exceptionally} or cancelled by the subscriber while the
+   * write is pending, the future either completes with the number of bytes written so far if any,
+   * or otherwise fails with an {@link AsynchronousCloseException}.
+   *
+   * <p>Like with other writes, content might be buffered till the buffer becomes full or {@link
+   * #flush()} or {@link #close()} is called.
+   */
+  public CompletableFuture<Integer> writeAsync(ByteBuffer src) {
+    return enqueueWrite(new AsyncWrite(src, false));
+  }
+
+  /**
+   * Asynchronously publishes the given buffer as is, without copying it into this publisher's
+   * buffers. Ownership of the buffer is transferred to this publisher, so the buffer must not be
+   * accessed after calling this method. The returned future completes with the number of the
+   * buffer's remaining bytes when the buffer is accepted within this publisher's capacity, which
+   * is when the number of currently buffered bytes drops below capacity. Previously buffered
+   * content is flushed before the transferred buffer so that order is maintained.
+   */
+  public CompletableFuture<Integer> transferAsync(ByteBuffer buffer) {
+    return enqueueWrite(new AsyncWrite(buffer, true));
+  }
+
   /**
    * Unless already closed, causes any subscribed (or yet to subscribe) client to fail with the
    * given error.
@@ -112,6 +178,7 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
     if (!closed) {
       closed = true;
       closeError = error;
+      wakeWriters();
       SubscriptionImpl subscription = downstreamSubscription;
       if (subscription != null) {
         subscription.signalError(error);
@@ -121,15 +188,39 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
 
   /**
    * Unless already closed, causes any subscribed (or yet to subscribe) client to be completed after
-   * the written content has been consumed.
+   * the written content, including that of pending {@link #writeAsync(ByteBuffer) asynchronous
+   * writes}, has been consumed. If this publisher has a known content length that doesn't match the
+   * number of written bytes, the client is failed with an {@code IOException} instead.
    */
   @Override
   public void close() {
     if (!closed) {
+      if (contentLength >= 0) {
+        long written;
+        synchronized (writeLock) {
+          written = writtenBytes + pendingBytes;
+        }
+        if (written != contentLength) {
+          closeExceptionally(
+              new IOException(
+                  String.format(
+                      "expected %d bytes to be written but %d were written",
+                      contentLength, written)));
+          return;
+        }
+      }
+
       closed = true;
-      flushInternal();
-      pipe.offer(CLOSED);
+      List<AsyncWrite> completedWrites = new ArrayList<>(0);
+      synchronized (writeLock) {
+        // Pending writes are still accepted as capacity is released, after which the body completes
+        closePending = true;
+        runPendingWrites(completedWrites);
+        completeIfNoPendingWrites();
+        writeLock.notifyAll(); // wake blocked writers
+      }
       signalDownstream(true);
+      completedWrites.forEach(AsyncWrite::complete);
     }
   }
 
@@ -148,7 +239,7 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
 
   @Override
   public long contentLength() {
-    return -1;
+    return contentLength;
   }
 
   @Override
@@ -185,21 +276,263 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
   }
 
   private boolean flushInternal() {
+    synchronized (writeLock) {
+      return flushSinkBuffer();
+    }
+  }
+
+  // Must be called while holding writeLock
+  private boolean flushSinkBuffer() {
+    ByteBuffer sink = sinkBuffer;
+    if (sink != null && sink.position() > 0) {
+      sinkBuffer =
+          sink.hasRemaining()
+              ? sink.slice() // retain remaining free space for further writes
+              : null;
+      pipe.offer(sink.flip().asReadOnlyBuffer());
+      return true;
+    }
+    return false;
+  }
+
+  private int write(ByteBuffer src, boolean blockOnFullCapacity) throws IOException {
+    requireNonNull(src);
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    if (!src.hasRemaining()) {
+      return 0;
+    }
+
+    int written = 0;
+    boolean lengthChecked = false;
+    while (true) {
+      boolean signalsAvailable = false;
+      boolean capacityExhausted = false;
+      IOException lengthError = null;
+      synchronized (writeLock) {
+        if (!lengthChecked) {
+          lengthChecked = true;
+          lengthError = checkContentLength(src.remaining());
+        }
+        while (lengthError == null && src.hasRemaining() && !closed) {
+          // Don't overtake async writes that are waiting for capacity
+          long freeCapacity = pendingWrites.isEmpty() ? capacity - bufferedBytes : 0;
+          if (freeCapacity <= 0) {
+            // Make sure downstream can consume what's buffered so capacity can be restored
+            signalsAvailable |= flushSinkBuffer();
+            capacityExhausted = true;
+            break;
+          }
+
+          int position = src.position();
+          signalsAvailable |= copyToSink(src, freeCapacity);
+          written += src.position() - position;
+        }
+
+        if (closed) { // asynchronously closed
+          if (written <= 0) { // only report if no bytes were written
+            throw new AsynchronousCloseException();
+          }
+        } else if (capacityExhausted && blockOnFullCapacity && !signalsAvailable) {
+          awaitCapacity(written);
+          continue;
+        }
+      }
+
+      if (lengthError != null) {
+        closeExceptionally(lengthError);
+        throw lengthError;
+      }
+      if (signalsAvailable) {
+        // Signal without holding writeLock, downstream might restore capacity inline
+        signalDownstream(false);
+      }
+      if (!capacityExhausted || !blockOnFullCapacity || closed) {
+        return written;
+      }
+    }
+  }
+
+  // Must be called while holding writeLock
+  private @Nullable IOException checkContentLength(long byteCount) {
+    if (contentLength >= 0 && byteCount > contentLength - writtenBytes - pendingBytes) {
+      return new IOException(
+          String.format(
+              "writing %d bytes exceeds content length (%d), %d bytes are already written",
+              byteCount, contentLength, writtenBytes + pendingBytes));
+    }
+    return null;
+  }
+
+  // Must be called while holding writeLock
+  private boolean copyToSink(ByteBuffer src, long maxBytes) {
+    int position = src.position();
+    int srcLimit = src.limit();
+    if (maxBytes < src.remaining()) {
+      src.limit(position + (int) maxBytes);
+    }
     boolean signalsAvailable = false;
+    try {
+      while (src.hasRemaining()) {
+        ByteBuffer sink = sinkBuffer;
+        if (sink == null) {
+          sink = ByteBuffer.allocate(SINK_BUFFER_SIZE);
+          sinkBuffer = sink;
+        }
+        Utils.copyRemaining(src, sink);
+        if (!sink.hasRemaining()) {
+          pipe.offer(sink.flip().asReadOnlyBuffer());
+          signalsAvailable = true;
+          sinkBuffer = null;
+        }
+      }
+    } finally {
+      src.limit(srcLimit);
+    }
+    int copied = src.position() - position;
+    writtenBytes += copied;
+    if (capacity != UNBOUNDED_CAPACITY) {
+      bufferedBytes += copied;
+    }
+    return signalsAvailable;
+  }
+
+  private CompletableFuture<Integer> enqueueWrite(AsyncWrite write) {
+    List<AsyncWrite> completedWrites = new ArrayList<>(1);
+    boolean signalsAvailable;
+    IOException lengthError;
     synchronized (writeLock) {
-      ByteBuffer sink = sinkBuffer;
-      if (sink != null && sink.position() > 0) {
-        sinkBuffer =
-            sink.hasRemaining()
-                ? sink.slice() // retain remaining free space for further writes
-                : null;
-        pipe.offer(sink.flip().asReadOnlyBuffer());
-        signalsAvailable = true;
+      if (closed) {
+        return CompletableFuture.failedFuture(new ClosedChannelException());
+      }
+      lengthError = checkContentLength(write.src.remaining());
+      if (lengthError == null) {
+        pendingWrites.add(write);
+        pendingBytes += write.src.remaining();
+        signalsAvailable = runPendingWrites(completedWrites);
+      } else {
+        signalsAvailable = false;
       }
     }
+
+    if (lengthError != null) {
+      closeExceptionally(lengthError);
+      return CompletableFuture.failedFuture(lengthError);
+    }
+
+    if (signalsAvailable) {
+      signalDownstream(false);
+    }
+    completedWrites.forEach(AsyncWrite::complete);
+    return write.future;
+  }
+
+  // Must be called while holding writeLock
+  private boolean runPendingWrites(List<AsyncWrite> completedWrites) {
+    if (closed && !closePending) { // pending writes are discarded when closed exceptionally
+      return false;
+    }
+
+    boolean signalsAvailable = false;
+    AsyncWrite write;
+    while ((write = pendingWrites.peek()) != null) {
+      long freeCapacity = capacity - bufferedBytes;
+      if (freeCapacity <= 0) {
+        break;
+      }
+
+      ByteBuffer src = write.src;
+      if (write.transfer) {
+        signalsAvailable |= flushSinkBuffer(); // maintain order
+        int transferred = src.remaining();
+        write.written = transferred;
+        pendingBytes -= transferred;
+        if (transferred > 0) {
+          pipe.offer(src);
+          signalsAvailable = true;
+          writtenBytes += transferred;
+          if (capacity != UNBOUNDED_CAPACITY) {
+            bufferedBytes += transferred;
+          }
+        }
+      } else {
+        int position = src.position();
+        signalsAvailable |= copyToSink(src, freeCapacity);
+        int copied = src.position() - position;
+        write.written += copied;
+        pendingBytes -= copied;
+        if (src.hasRemaining()) {
+          break;
+        }
+      }
+      pendingWrites.poll();
+      completedWrites.add(write);
+    }
+
+    if (!pendingWrites.isEmpty()) {
+      // Make sure downstream can consume what's buffered so capacity can be restored
+      signalsAvailable |= flushSinkBuffer();
+    }
     return signalsAvailable;
   }
 
+  // Must be called while holding writeLock
+  private boolean completeIfNoPendingWrites() {
+    if (!pendingWrites.isEmpty()) {
+      return false;
+    }
+    closePending = false;
+    flushSinkBuffer();
+    pipe.offer(CLOSED);
+    return true;
+  }
+
+  // Must be called while holding writeLock
+  private void awaitCapacity(int written) throws InterruptedIOException {
+    try {
+      writeLock.wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      InterruptedIOException interruptedIO = new InterruptedIOException("interrupted while writing");
+      interruptedIO.bytesTransferred = written;
+      throw interruptedIO;
+    }
+  }
+
+  private void releaseCapacity(long byteCount) {
+    if (capacity != UNBOUNDED_CAPACITY) {
+      List<AsyncWrite> completedWrites = new ArrayList<>(0);
+      boolean signalsAvailable;
+      boolean completed;
+      synchronized (writeLock) {
+        bufferedBytes -= byteCount;
+        signalsAvailable = runPendingWrites(completedWrites);
+        completed = closePending && completeIfNoPendingWrites();
+        writeLock.notifyAll();
+      }
+
+      if (signalsAvailable || completed) {
+        signalDownstream(completed); // completion is signalled regardless of demand
+      }
+      completedWrites.forEach(AsyncWrite::complete);
+    }
+  }
+
+  private void wakeWriters() {
+    if (capacity != UNBOUNDED_CAPACITY) {
+      List<AsyncWrite> abortedWrites;
+      synchronized (writeLock) {
+        abortedWrites = new ArrayList<>(pendingWrites);
+        pendingWrites.clear();
+        pendingBytes = 0;
+        closePending = false;
+        writeLock.notifyAll();
+      }
+      abortedWrites.forEach(AsyncWrite::completeOnClose);
+    }
+  }
+
   private static int getSinkBufferSize() {
     int size = Integer.getInteger(SINK_BUFFER_SIZE_PROP, DEFAULT_SINK_BUFFER_SIZE);
     if (size <= 0) {
@@ -208,55 +541,111 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
     return size;
   }
 
-  /** Returns a new {@code WritableBodyPublisher}. */
+  /** Returns a new {@code WritableBodyPublisher} with unbounded capacity. */
   public static WritableBodyPublisher create() {
-    return new WritableBodyPublisher();
+    return new WritableBodyPublisher(UNBOUNDED_CAPACITY, true, -1);
   }
 
-  private final class SinkChannel implements WritableByteChannel {
+  /**
+   * Returns a new {@code WritableBodyPublisher} with unbounded capacity and the given content
+   * length.
+   *
+   * @throws IllegalArgumentException if {@code contentLength} is negative
+   */
+  public static WritableBodyPublisher create(long contentLength) {
+    return newBuilder().contentLength(contentLength).build();
+  }
 
-    SinkChannel() {}
+  /** Returns a new {@code WritableBodyPublisher.Builder}. */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
 
-    @Override
-    public int write(ByteBuffer src) throws ClosedChannelException {
-      requireNonNull(src);
-      if (closed) {
-        throw new ClosedChannelException();
-      }
-      if (!src.hasRemaining()) {
-        return 0;
-      }
+  /** A builder of {@code WritableBodyPublishers}. */
+  public static final class Builder {
 
-      int written = 0;
-      boolean signalsAvailable = false;
-      synchronized (writeLock) {
-        ByteBuffer sink = sinkBuffer;
-        do {
-          if (sink == null) {
-            sink = ByteBuffer.allocate(SINK_BUFFER_SIZE);
-          }
-          written += Utils.copyRemaining(src, sink);
-          if (!sink.hasRemaining()) {
-            pipe.offer(sink.flip().asReadOnlyBuffer());
-            signalsAvailable = true;
-            sink = null;
-          }
-        } while (src.hasRemaining() && isOpen());
+    private long capacity;
+    private boolean blocking;
+    private long contentLength;
 
-        if (closed) { // asynchronously closed
-          sinkBuffer = null;
-          if (written <= 0) { // only report if no bytes were written
-            throw new AsynchronousCloseException();
-          }
-        } else {
-          sinkBuffer = sink;
-        }
-      }
+    Builder() {
+      capacity = UNBOUNDED_CAPACITY;
+      blocking = true;
+      contentLength = -1;
+    }
 
-      if (signalsAvailable) {
-        signalDownstream(false);
+    /**
+     * Sets the maximum number of bytes that can be written but not yet consumed by the
+     * subscriber. By default, capacity is unbounded.
+     *
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public Builder capacity(long capacity) {
+      requireArgument(capacity > 0, "non-positive capacity: %s", capacity);
+      this.capacity = capacity;
+      return this;
+    }
+
+    /**
+     * If set to {@code true} (default), writes to the {@link #byteChannel() channel} block till
+     * all bytes are written when capacity is exhausted. Otherwise, such writes only write as much
+     * bytes as capacity allows, possibly none.
+     */
+    public Builder blocking(boolean blocking) {
+      this.blocking = blocking;
+      return this;
+    }
+
+    /**
+     * Sets the exact number of bytes to be written. By default, content length is unknown.
+     *
+     * @throws IllegalArgumentException if {@code contentLength} is negative
+     */
+    public Builder contentLength(long contentLength) {
+      requireArgument(contentLength >= 0, "negative content length: %s", contentLength);
+      this.contentLength = contentLength;
+      return this;
+    }
+
+    /** Builds a new {@code WritableBodyPublisher}. */
+    public WritableBodyPublisher build() {
+      return new WritableBodyPublisher(capacity, blocking, contentLength);
+    }
+  }
+
+  private static final class AsyncWrite {
+
+    final ByteBuffer src;
+    final boolean transfer;
+    final CompletableFuture<Integer> future;
+    int written; // guarded by writeLock
+
+    AsyncWrite(ByteBuffer src, boolean transfer) {
+      this.src = requireNonNull(src);
+      this.transfer = transfer;
+      future = new CompletableFuture<>();
+    }
+
+    void complete() {
+      future.complete(written);
+    }
+
+    void completeOnClose() {
+      if (written > 0) {
+        future.complete(written);
+      } else {
+        future.completeExceptionally(new AsynchronousCloseException());
       }
-      return written;
+    }
+  }
+
+  private final class SinkChannel implements WritableByteChannel {
+
+    SinkChannel() {}
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      return WritableBodyPublisher.this.write(src, blocking);
     }
 
     @Override
@@ -270,24 +659,24 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
     }
   }
 
-  // Adapts a channel to OutputStream. Most work is done by Channels#newOutputStream but overridden
-  // to forward flush() and close() to this publisher.
-  private final class SinkChannelAdapter extends OutputStream {
-
-    private final OutputStream out;
+  // Writes directly to this publisher (rather than through the channel as is done by
+  // Channels#newOutputStream) to always block, and forwards flush() and close().
+  private final class SinkOutputStream extends OutputStream {
 
-    SinkChannelAdapter(WritableByteChannel channel) {
-      this.out = Channels.newOutputStream(channel);
-    }
+    SinkOutputStream() {}
 
     @Override
     public void write(int b) throws IOException {
-      out.write(b);
+      WritableBodyPublisher.this.write(ByteBuffer.wrap(new byte[] {(byte) b}), true);
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-      out.write(b, off, len);
+      Objects.checkFromIndexSize(off, len, b.length);
+      ByteBuffer src = ByteBuffer.wrap(b, off, len);
+      while (src.hasRemaining()) {
+        WritableBodyPublisher.this.write(src, true);
+      }
     }
 
     @Override
@@ -323,18 +712,28 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
         batch = pipe.poll();
       }
       long submitted = 0L;
-      while (true) {
-        if (batch == CLOSED) {
-          cancelOnComplete(downstream);
-          return 0;
-        } else if (submitted >= emit || batch == null) { // exhausted either demand or batches
-          currentBatch = batch; // might be non-null
-          return submitted;
-        } else if (submitOnNext(downstream, batch)) {
-          submitted++;
-          batch = pipe.poll(); // get next batch and continue
-        } else {
-          return 0;
+      long submittedBytes = 0L;
+      try {
+        while (true) {
+          if (batch == CLOSED) {
+            cancelOnComplete(downstream);
+            return 0;
+          } else if (submitted >= emit || batch == null) { // exhausted either demand or batches
+            currentBatch = batch; // might be non-null
+            return submitted;
+          }
+          int batchSize = batch.remaining(); // downstream might consume the batch
+          if (submitOnNext(downstream, batch)) {
+            submitted++;
+            submittedBytes += batchSize;
+            batch = pipe.poll(); // get next batch and continue
+          } else {
+            return 0;
+          }
+        }
+      } finally {
+        if (submittedBytes > 0) {
+          releaseCapacity(submittedBytes);
         }
       }
     }
@@ -343,6 +742,9 @@ public final class WritableBodyPublisher implements BodyPublisher, Flushable, Au
     protected void abort(boolean flowInterrupted) {
       WritableBodyPublisher.this.downstreamSubscription = null; // loose reference "this"
       pipe.clear();
+      // There's no point in accepting further or pending writes after the subscription ends
+      closed = true;
+      wakeWriters();
     }
   }
 }
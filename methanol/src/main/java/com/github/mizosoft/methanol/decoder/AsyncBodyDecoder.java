@@ -152,8 +152,13 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
     }
     prefetcher.update(upstream);
     SubscriptionImpl subscription = downstreamSubscription;
-    if (sink.flush(decodedBuffers, false) && subscription != null) {
-      subscription.signal(false); // Notify downstream there is new data
+    List<ByteBuffer> batch = sink.slice(false);
+    // In sync mode, the decoded batch is passed directly to downstream if possible
+    if (!batch.isEmpty() && (subscription == null || !subscription.trySubmitInline(batch))) {
+      decodedBuffers.offer(batch);
+      if (subscription != null) {
+        subscription.signal(false); // Notify downstream there is new data
+      }
     }
   }
 
@@ -286,7 +291,7 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
       return false;
     }
 
-    private List<ByteBuffer> slice(boolean finished) {
+    List<ByteBuffer> slice(boolean finished) {
       if (sinkBuffers.isEmpty()) {
         return List.of();
       }
@@ -343,6 +348,11 @@ public final class AsyncBodyDecoder<T> implements BodyDecoder<T> {
       }
     }
 
+    @Override
+    protected boolean hasQueuedItems() {
+      return currentBatch != null || !decodedBuffers.isEmpty();
+    }
+
     @Override
     protected void abort(boolean flowInterrupted) {
       if (flowInterrupted) {
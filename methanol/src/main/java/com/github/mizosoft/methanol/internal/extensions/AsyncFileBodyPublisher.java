@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow.Subscriber;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@code BodyPublisher} for a file's content that reads the file with an {@link
+ * AsynchronousFileChannel}, keeping up to a number of chunks read ahead of downstream demand. Files
+ * at least as large as a given threshold are instead memory-mapped and published as slices of the
+ * mapped regions.
+ */
+public final class AsyncFileBodyPublisher implements BodyPublisher {
+
+  private static final long MAX_MAPPED_REGION_SIZE = 64 * 1024 * 1024; // 64Mb
+
+  private final Path file;
+  private final int bufferSize;
+  private final int readAhead;
+  private final long memoryMapThreshold;
+  private final boolean recycleBuffers;
+  private final @Nullable ExecutorService executor;
+
+  /**
+   * Creates a new {@code AsyncFileBodyPublisher}. If {@code executor} is {@code null}, the
+   * channel's default thread pool is used for handling IO events.
+   */
+  public AsyncFileBodyPublisher(
+      Path file,
+      int bufferSize,
+      int readAhead,
+      long memoryMapThreshold,
+      boolean recycleBuffers,
+      @Nullable ExecutorService executor) {
+    this.file = requireNonNull(file);
+    this.bufferSize = bufferSize;
+    this.readAhead = readAhead;
+    this.memoryMapThreshold = memoryMapThreshold;
+    this.recycleBuffers = recycleBuffers;
+    this.executor = executor;
+  }
+
+  @Override
+  public long contentLength() {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+    requireNonNull(subscriber);
+    new FileSubscription(subscriber).signal(true);
+  }
+
+  /** A chunk of the file that is either being read or ready to be published. */
+  private static final class Chunk {
+
+    final ByteBuffer buffer;
+    final long position;
+    volatile boolean done;
+    volatile @Nullable Throwable error;
+
+    Chunk(ByteBuffer buffer, long position) {
+      this.buffer = buffer;
+      this.position = position;
+    }
+  }
+
+  private final class FileSubscription extends AbstractSubscription<ByteBuffer>
+      implements CompletionHandler<Integer, Chunk> {
+
+    // Chunks in file order, accessed only within emit
+    private final ArrayDeque<Chunk> chunks;
+    private final ArrayDeque<ByteBuffer> submittedBuffers; // retained if buffers are recycled
+    private final ArrayDeque<ByteBuffer> freeBuffers;
+    private @MonotonicNonNull AsynchronousFileChannel asyncChannel;
+    private @MonotonicNonNull FileChannel mappedChannel;
+    private @Nullable MappedByteBuffer mappedRegion;
+    private long fileSize;
+    private long readPosition;
+    private volatile boolean endOfFile;
+
+    FileSubscription(Subscriber<? super ByteBuffer> downstream) {
+      super(downstream, FlowSupport.SYNC_EXECUTOR);
+      chunks = new ArrayDeque<>(readAhead);
+      submittedBuffers = new ArrayDeque<>();
+      freeBuffers = new ArrayDeque<>();
+    }
+
+    @Override
+    protected long emit(Subscriber<? super ByteBuffer> downstream, long emit) {
+      if (asyncChannel == null && mappedChannel == null) {
+        try {
+          open();
+        } catch (IOException e) {
+          cancelOnError(downstream, e, true);
+          return 0L;
+        }
+      }
+
+      if (recycleBuffers) {
+        recycleConsumedBuffers();
+      }
+      long submitted = 0L;
+      while (true) {
+        try {
+          readAhead();
+        } catch (IOException e) {
+          cancelOnError(downstream, e, true);
+          return 0L;
+        }
+
+        var chunk = chunks.peek();
+        Throwable error;
+        if (chunk == null) { // nothing left to read
+          cancelOnComplete(downstream);
+          return 0L;
+        } else if (!chunk.done) { // wait for read completion to signal
+          return submitted;
+        } else if ((error = chunk.error) != null) {
+          cancelOnError(downstream, error, true);
+          return 0L;
+        } else if (submitted >= emit) {
+          return submitted;
+        }
+
+        chunks.poll();
+        var buffer = chunk.buffer.flip();
+        if (!buffer.hasRemaining()) { // reached end of file prematurely
+          continue;
+        }
+        if (recycleBuffers) {
+          submittedBuffers.add(buffer);
+        }
+        if (submitOnNext(downstream, buffer)) {
+          submitted++;
+        } else {
+          return 0L;
+        }
+      }
+    }
+
+    @Override
+    protected void abort(boolean flowInterrupted) {
+      try {
+        if (asyncChannel != null) {
+          asyncChannel.close(); // pending reads fail with AsynchronousCloseException
+        }
+        if (mappedChannel != null) {
+          mappedChannel.close();
+        }
+      } catch (IOException ignored) {
+        // The file was only read from
+      }
+    }
+
+    @Override
+    public void completed(Integer read, Chunk chunk) {
+      if (read < 0) {
+        endOfFile = true;
+      } else if (chunk.buffer.hasRemaining()) {
+        // Continue reading the rest of the chunk
+        readChunk(chunk, chunk.position + chunk.buffer.position());
+        return;
+      }
+      chunk.done = true;
+      signal(false);
+    }
+
+    @Override
+    public void failed(Throwable exception, Chunk chunk) {
+      chunk.error = exception;
+      chunk.done = true;
+      signal(true); // error is signalled regardless of demand
+    }
+
+    private void open() throws IOException {
+      var channel = FileChannel.open(file, StandardOpenOption.READ);
+      fileSize = channel.size();
+      if (fileSize >= memoryMapThreshold) {
+        mappedChannel = channel;
+      } else {
+        channel.close();
+        asyncChannel =
+            AsynchronousFileChannel.open(file, Set.of(StandardOpenOption.READ), executor);
+      }
+    }
+
+    private void readAhead() throws IOException {
+      while (chunks.size() < readAhead && readPosition < fileSize && !endOfFile) {
+        int chunkSize = (int) Math.min(bufferSize, fileSize - readPosition);
+        var chunk =
+            mappedChannel != null
+                ? new Chunk(mappedSlice(chunkSize), readPosition)
+                : new Chunk(allocate(chunkSize), readPosition);
+        chunks.add(chunk);
+        readPosition += chunkSize;
+        if (mappedChannel != null) {
+          chunk.buffer.position(chunk.buffer.limit()); // "read" the whole slice
+          chunk.done = true;
+        } else {
+          readChunk(chunk, chunk.position);
+        }
+      }
+    }
+
+    private void readChunk(Chunk chunk, long position) {
+      var channel = asyncChannel;
+      if (channel != null) {
+        try {
+          channel.read(chunk.buffer, position, chunk, this);
+        } catch (RuntimeException e) { // e.g. the channel was closed asynchronously
+          failed(e, chunk);
+        }
+      }
+    }
+
+    private ByteBuffer mappedSlice(int size) throws IOException {
+      var region = mappedRegion;
+      if (region == null || region.remaining() < size) {
+        var channel = requireNonNull(mappedChannel);
+        long regionSize = Math.min(MAX_MAPPED_REGION_SIZE, fileSize - readPosition);
+        region = channel.map(MapMode.READ_ONLY, readPosition, regionSize);
+        mappedRegion = region;
+      }
+      var slice = region.slice().limit(size);
+      region.position(region.position() + size);
+      return slice;
+    }
+
+    private ByteBuffer allocate(int size) {
+      var buffer = freeBuffers.poll();
+      if (buffer == null) {
+        return ByteBuffer.allocate(bufferSize).limit(size);
+      }
+      return buffer.clear().limit(size);
+    }
+
+    /** Moves buffers that were fully consumed by downstream to the free buffers pool. */
+    private void recycleConsumedBuffers() {
+      ByteBuffer buffer;
+      while ((buffer = submittedBuffers.peek()) != null && !buffer.hasRemaining()) {
+        submittedBuffers.poll();
+        if (buffer.capacity() == bufferSize && freeBuffers.size() < readAhead) {
+          freeBuffers.add(buffer);
+        }
+      }
+    }
+  }
+}
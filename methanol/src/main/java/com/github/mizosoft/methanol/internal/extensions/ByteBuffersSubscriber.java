@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+
+/**
+ * A {@code BodySubscriber} that aggregates the response body into a list of read-only buffers
+ * without joining them at the end. If the content length is known and doesn't exceed a maximum
+ * presized length, the body is copied into a single buffer that is allocated when the first buffers
+ * are received. Otherwise, received buffers are retained as they are. In both cases, the body fails
+ * if it doesn't match a known content length.
+ */
+public final class ByteBuffersSubscriber implements BodySubscriber<List<ByteBuffer>> {
+
+  // Content-Length is sent by the server, so it isn't trusted with allocating arbitrarily large
+  // buffers. Longer bodies are retained as received, which grows with what's actually received.
+  private static final int DEFAULT_MAX_PRESIZED_LENGTH = 1024 * 1024; // 1Mb
+
+  private final long contentLength;
+  private final boolean presize;
+  private final Upstream upstream;
+  private final CompletableFuture<List<ByteBuffer>> bodyFuture;
+  private final List<ByteBuffer> buffers;
+  private @MonotonicNonNull ByteBuffer presizedBuffer; // allocated on first onNext if presize
+  private long received;
+
+  /** Creates a new {@code ByteBuffersSubscriber}, {@code contentLength} is negative if unknown. */
+  public ByteBuffersSubscriber(long contentLength) {
+    this(contentLength, DEFAULT_MAX_PRESIZED_LENGTH);
+  }
+
+  /**
+   * Creates a new {@code ByteBuffersSubscriber} that only copies the body into a single buffer if
+   * {@code contentLength} is known and doesn't exceed {@code maxPresizedLength}.
+   */
+  public ByteBuffersSubscriber(long contentLength, int maxPresizedLength) {
+    this.contentLength = contentLength;
+    presize = contentLength >= 0 && contentLength <= maxPresizedLength;
+    upstream = new Upstream();
+    bodyFuture = new CompletableFuture<>();
+    buffers = new ArrayList<>();
+  }
+
+  @Override
+  public CompletionStage<List<ByteBuffer>> getBody() {
+    return bodyFuture;
+  }
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    requireNonNull(subscription);
+    if (upstream.setOrCancel(subscription)) {
+      upstream.request(Long.MAX_VALUE);
+    }
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> item) {
+    requireNonNull(item);
+    if (bodyFuture.isDone()) { // failed
+      return;
+    }
+
+    for (var buffer : item) {
+      int remaining = buffer.remaining();
+      if (contentLength >= 0 && remaining > contentLength - received) {
+        upstream.cancel();
+        buffers.clear();
+        bodyFuture.completeExceptionally(
+            new IOException("body exceeds content length: " + contentLength));
+        return;
+      }
+      received += remaining;
+      if (presize) {
+        var presized = presizedBuffer;
+        if (presized == null) {
+          presized = ByteBuffer.allocate((int) contentLength);
+          presizedBuffer = presized;
+        }
+        presized.put(buffer);
+      } else if (remaining > 0) {
+        buffers.add(buffer.asReadOnlyBuffer());
+      }
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    requireNonNull(throwable);
+    upstream.clear();
+    buffers.clear();
+    bodyFuture.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    upstream.clear();
+    if (contentLength >= 0 && received < contentLength) {
+      buffers.clear();
+      bodyFuture.completeExceptionally(
+          new IOException(
+              "body ended prematurely, " + (contentLength - received) + " bytes are missing"));
+    } else if (presize) {
+      var presized = presizedBuffer;
+      if (presized == null) { // empty body
+        presized = ByteBuffer.allocate(0);
+      }
+      bodyFuture.complete(List.of(presized.flip().asReadOnlyBuffer()));
+    } else {
+      bodyFuture.complete(Collections.unmodifiableList(buffers));
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@code BodyPublisher} that reads an {@code InputStream} on a given executor, keeping up to a
+ * number of chunks read ahead of downstream demand. Blocking reads are thus never run on the threads
+ * requesting the body. A new stream is obtained from the given supplier for each subscription.
+ */
+public final class InputStreamBodyPublisher implements BodyPublisher {
+
+  private final Supplier<? extends InputStream> streamSupplier;
+  private final Executor executor;
+  private final int bufferSize;
+  private final int readAhead;
+
+  public InputStreamBodyPublisher(
+      Supplier<? extends InputStream> streamSupplier,
+      Executor executor,
+      int bufferSize,
+      int readAhead) {
+    this.streamSupplier = requireNonNull(streamSupplier);
+    this.executor = requireNonNull(executor);
+    this.bufferSize = bufferSize;
+    this.readAhead = readAhead;
+  }
+
+  @Override
+  public long contentLength() {
+    return -1;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+    requireNonNull(subscriber);
+    new StreamSubscription(subscriber).signal(true);
+  }
+
+  private final class StreamSubscription extends AbstractSubscription<ByteBuffer> {
+
+    private final ConcurrentLinkedQueue<ByteBuffer> chunks;
+    private final AtomicBoolean reading;
+    private volatile @MonotonicNonNull InputStream stream;
+    private volatile boolean endOfStream;
+    private volatile @Nullable Throwable readError;
+
+    StreamSubscription(Subscriber<? super ByteBuffer> downstream) {
+      super(downstream, FlowSupport.SYNC_EXECUTOR);
+      chunks = new ConcurrentLinkedQueue<>();
+      reading = new AtomicBoolean();
+    }
+
+    @Override
+    protected long emit(Subscriber<? super ByteBuffer> downstream, long emit) {
+      long submitted = 0L;
+      while (true) {
+        ByteBuffer chunk;
+        Throwable error;
+        if (chunks.isEmpty() && (error = readError) != null) {
+          cancelOnError(downstream, error, true);
+          return 0L;
+        } else if (chunks.isEmpty() && endOfStream) {
+          cancelOnComplete(downstream);
+          return 0L;
+        } else if (submitted >= emit || (chunk = chunks.poll()) == null) {
+          scheduleRead();
+          return submitted;
+        } else if (submitOnNext(downstream, chunk)) {
+          submitted++;
+        } else {
+          return 0L;
+        }
+      }
+    }
+
+    @Override
+    protected void abort(boolean flowInterrupted) {
+      chunks.clear();
+      if (!reading.get()) {
+        closeStream(); // otherwise the stream is closed by the running read task
+      }
+    }
+
+    /** Schedules a read task if there's room for more chunks and no reads are in progress. */
+    private void scheduleRead() {
+      if (shouldRead() && reading.compareAndSet(false, true)) {
+        try {
+          executor.execute(this::readChunks);
+        } catch (RuntimeException | Error e) {
+          reading.set(false);
+          readError = e;
+          signal(true);
+        }
+      }
+    }
+
+    private boolean shouldRead() {
+      return chunks.size() < readAhead && !endOfStream && readError == null && !isCancelled();
+    }
+
+    private void readChunks() {
+      try {
+        var in = stream;
+        if (in == null) {
+          in = requireNonNull(streamSupplier.get(), "supplied stream");
+          stream = in;
+        }
+        while (shouldRead()) {
+          var buffer = ByteBuffer.allocate(bufferSize);
+          int read = in.read(buffer.array());
+          if (read < 0) {
+            endOfStream = true;
+          } else if (read > 0) {
+            chunks.add(buffer.limit(read));
+          }
+          signal(endOfStream); // completion is signalled regardless of demand
+        }
+      } catch (IOException | RuntimeException e) {
+        readError = e;
+        signal(true); // error is signalled regardless of demand
+      } finally {
+        reading.set(false);
+      }
+
+      if (isCancelled() || endOfStream || readError != null) {
+        closeStream();
+      } else {
+        scheduleRead(); // recheck in case chunks were consumed meanwhile
+      }
+    }
+
+    private void closeStream() {
+      var in = stream;
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException ignored) {
+          // The stream was only read from
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@code BodySubscriber} that writes the response body into a memory-mapped file. If the content
+ * length is known, the file is mapped beforehand and received buffers are copied directly into the
+ * mapped region. Otherwise, the body is written to the file through a {@code FileChannel} and the
+ * file is mapped after the body is received.
+ */
+public final class MappedFileSubscriber implements BodySubscriber<MappedByteBuffer> {
+
+  private final Path file;
+  private final long contentLength;
+  private final Upstream upstream;
+  private final CompletableFuture<MappedByteBuffer> bodyFuture;
+  private @MonotonicNonNull FileChannel channel;
+  private @Nullable MappedByteBuffer mappedBuffer; // non-null if content length is known
+
+  /** Creates a new {@code MappedFileSubscriber}, {@code contentLength} is negative if unknown. */
+  public MappedFileSubscriber(Path file, long contentLength) {
+    this.file = requireNonNull(file);
+    this.contentLength = contentLength;
+    upstream = new Upstream();
+    bodyFuture = new CompletableFuture<>();
+  }
+
+  @Override
+  public CompletionStage<MappedByteBuffer> getBody() {
+    return bodyFuture;
+  }
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    requireNonNull(subscription);
+    if (upstream.setOrCancel(subscription)) {
+      try {
+        if (contentLength > Integer.MAX_VALUE) {
+          throw new IOException("content length is too large to be mapped: " + contentLength);
+        }
+        var channel =
+            FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.channel = channel;
+        if (contentLength >= 0) {
+          // Mapping beyond the file's size grows it to the content length
+          mappedBuffer = channel.map(MapMode.READ_WRITE, 0, contentLength);
+        }
+      } catch (IOException e) {
+        fail(e);
+        return;
+      }
+      upstream.request(Long.MAX_VALUE);
+    }
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> item) {
+    requireNonNull(item);
+    var channel = this.channel;
+    if (channel == null || bodyFuture.isDone()) { // failed
+      return;
+    }
+
+    var mapped = mappedBuffer;
+    try {
+      for (var buffer : item) {
+        if (mapped != null) {
+          if (buffer.remaining() > mapped.remaining()) {
+            throw new IOException("body exceeds content length: " + contentLength);
+          }
+          mapped.put(buffer);
+        } else {
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+        }
+      }
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    requireNonNull(throwable);
+    upstream.clear();
+    closeChannel();
+    bodyFuture.completeExceptionally(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    upstream.clear();
+    var channel = this.channel;
+    if (channel == null || bodyFuture.isDone()) {
+      return;
+    }
+
+    try (channel) {
+      var mapped = mappedBuffer;
+      if (mapped != null) {
+        if (mapped.hasRemaining()) {
+          throw new IOException(
+              "body ended prematurely, " + mapped.remaining() + " bytes are missing");
+        }
+        mapped.flip();
+      } else {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+          throw new IOException("body is too large to be mapped: " + size);
+        }
+        mapped = channel.map(MapMode.READ_WRITE, 0, size);
+      }
+      bodyFuture.complete(mapped);
+    } catch (IOException e) {
+      bodyFuture.completeExceptionally(e);
+    }
+  }
+
+  private void fail(IOException error) {
+    upstream.cancel();
+    closeChannel();
+    bodyFuture.completeExceptionally(error);
+  }
+
+  private void closeChannel() {
+    var channel = this.channel;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+        // The body is failed anyways
+      }
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@code BodyPublisher} that relays the buffers of a {@code Publisher<List<ByteBuffer>>}, such as
+ * the body of an in-flight response, without copying them. Lists are requested from upstream one at
+ * a time and only after the previous list is consumed by downstream, so backpressure is propagated
+ * to the source. The publisher can only be subscribed to once.
+ */
+public final class RelayBodyPublisher implements BodyPublisher {
+
+  private final Publisher<List<ByteBuffer>> source;
+  private final long contentLength;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  /** Creates a new {@code RelayBodyPublisher}, {@code contentLength} is negative if unknown. */
+  public RelayBodyPublisher(Publisher<List<ByteBuffer>> source, long contentLength) {
+    this.source = requireNonNull(source);
+    this.contentLength = contentLength;
+  }
+
+  @Override
+  public long contentLength() {
+    return contentLength;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+    requireNonNull(subscriber);
+    if (subscribed.compareAndSet(false, true)) {
+      var subscription = new RelaySubscription(subscriber);
+      subscription.signal(true); // apply onSubscribe
+      source.subscribe(subscription.upstreamSubscriber);
+    } else {
+      Throwable error =
+          new IllegalStateException("already subscribed, multiple subscribers not supported");
+      try {
+        subscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+      } catch (Throwable t) {
+        error.addSuppressed(t);
+      } finally {
+        subscriber.onError(error);
+      }
+    }
+  }
+
+  private static final class RelaySubscription extends AbstractSubscription<ByteBuffer> {
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers;
+    private final Upstream upstream;
+    private final Subscriber<List<ByteBuffer>> upstreamSubscriber;
+    private volatile boolean upstreamSubscribed;
+    private volatile boolean awaitingUpstream;
+    private volatile boolean upstreamComplete;
+
+    RelaySubscription(Subscriber<? super ByteBuffer> downstream) {
+      super(downstream, FlowSupport.SYNC_EXECUTOR);
+      buffers = new ConcurrentLinkedQueue<>();
+      upstream = new Upstream();
+      upstreamSubscriber = new UpstreamSubscriber();
+    }
+
+    @Override
+    protected long emit(Subscriber<? super ByteBuffer> downstream, long emit) {
+      long submitted = 0L;
+      while (true) {
+        ByteBuffer buffer;
+        if (buffers.isEmpty() && upstreamComplete) {
+          cancelOnComplete(downstream);
+          return 0L;
+        } else if (submitted >= emit) {
+          return submitted;
+        } else if ((buffer = buffers.poll()) == null) {
+          // Only request the next list when the current one is fully consumed
+          if (upstreamSubscribed && !awaitingUpstream) {
+            awaitingUpstream = true;
+            upstream.request(1);
+            continue; // upstream might have delivered inline
+          }
+          return submitted;
+        } else if (submitOnNext(downstream, buffer)) {
+          submitted++;
+        } else {
+          return 0L;
+        }
+      }
+    }
+
+    @Override
+    protected void abort(boolean flowInterrupted) {
+      upstream.cancel();
+      buffers.clear();
+    }
+
+    @Override
+    protected boolean hasQueuedItems() {
+      return !buffers.isEmpty();
+    }
+
+    private final class UpstreamSubscriber implements Subscriber<List<ByteBuffer>> {
+
+      UpstreamSubscriber() {}
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        requireNonNull(subscription);
+        if (upstream.setOrCancel(subscription)) {
+          if (isCancelled()) {
+            upstream.cancel();
+          } else {
+            upstreamSubscribed = true;
+            signal(false);
+          }
+        }
+      }
+
+      @Override
+      public void onNext(List<ByteBuffer> item) {
+        requireNonNull(item);
+        for (var buffer : item) {
+          if (buffer.hasRemaining()) {
+            buffers.add(buffer);
+          }
+        }
+        awaitingUpstream = false;
+        signal(false);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        requireNonNull(throwable);
+        upstream.clear();
+        signalError(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        upstream.clear();
+        upstreamComplete = true;
+        signal(true);
+      }
+    }
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.MutableRequest;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.MonotonicNonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Downloads a resource into a file while recording how much of it has been written along with the
+ * resource's validators in a checkpoint file next to it. If a checkpoint exists when the download
+ * starts, the download is resumed from the recorded offset with a {@code Range} request that is
+ * conditional on the recorded validator via {@code If-Range}. If the server responds with the
+ * whole resource instead (e.g. the resource has changed or ranges are not supported), the file is
+ * rewritten from the beginning. The checkpoint is deleted once the download completes.
+ */
+public final class ResumableDownload {
+
+  private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+  private static final long CHECKPOINT_INTERVAL = 1024 * 1024; // 1Mb
+  private static final String IDENTITY_ENCODING = "identity";
+
+  private final HttpClient client;
+  private final URI uri;
+  private final Path file;
+  private final Path checkpointFile;
+
+  /** Creates a new {@code ResumableDownload}. */
+  public ResumableDownload(HttpClient client, URI uri, Path file) {
+    this.client = requireNonNull(client);
+    this.uri = requireNonNull(uri);
+    this.file = requireNonNull(file);
+    checkpointFile = file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+  }
+
+  /** Starts or resumes the download, returning a future that completes with the file when done. */
+  public CompletableFuture<Path> start() {
+    Checkpoint checkpoint;
+    try {
+      checkpoint = Checkpoint.read(checkpointFile, file);
+    } catch (IOException | IllegalArgumentException ignored) {
+      checkpoint = null; // an unreadable checkpoint can't be resumed from
+    }
+    return send(checkpoint);
+  }
+
+  private CompletableFuture<Path> send(@Nullable Checkpoint checkpoint) {
+    var request = MutableRequest.GET(uri).header("Accept-Encoding", IDENTITY_ENCODING);
+    if (checkpoint != null) {
+      request
+          .header("Range", "bytes=" + checkpoint.offset + "-")
+          .header("If-Range", checkpoint.validator);
+    }
+    return client
+        .sendAsync(request, info -> subscriberFor(info, checkpoint))
+        .thenCompose(
+            response -> {
+              int statusCode = response.statusCode();
+              if (statusCode == 416 && checkpoint != null) {
+                // The recorded offset is not satisfiable, start over
+                deleteCheckpoint();
+                return send(null);
+              } else if (statusCode != 200 && statusCode != 206) {
+                return CompletableFuture.failedFuture(
+                    new IOException("unsuccessful response code: " + statusCode));
+              }
+              return CompletableFuture.completedFuture(file);
+            });
+  }
+
+  private BodySubscriber<Void> subscriberFor(ResponseInfo info, @Nullable Checkpoint checkpoint) {
+    switch (info.statusCode()) {
+      case 200:
+        return new CheckpointingSubscriber(0, strongValidator(info.headers()), null);
+
+      case 206:
+        if (checkpoint == null) {
+          return new CheckpointingSubscriber(
+              0, null, new IOException("unexpected partial content for a full request"));
+        }
+        var expectedRangePrefix = "bytes " + checkpoint.offset + "-";
+        var contentRange = info.headers().firstValue("Content-Range").orElse("");
+        return contentRange.trim().startsWith(expectedRangePrefix)
+            ? new CheckpointingSubscriber(checkpoint.offset, checkpoint.validator, null)
+            : new CheckpointingSubscriber(
+                0,
+                null,
+                new IOException(
+                    "unexpected Content-Range, expected range starting with <"
+                        + expectedRangePrefix
+                        + "> but got <"
+                        + contentRange
+                        + ">"));
+
+      default:
+        return BodySubscribers.replacing(null);
+    }
+  }
+
+  private void deleteCheckpoint() {
+    try {
+      Files.deleteIfExists(checkpointFile);
+    } catch (IOException ignored) {
+      // An obsolete checkpoint is overwritten or ignored by later downloads
+    }
+  }
+
+  private static @Nullable String strongValidator(HttpHeaders headers) {
+    var etag = headers.firstValue("ETag").orElse(null);
+    if (etag != null && !etag.startsWith("W/")) {
+      return etag;
+    }
+    return headers.firstValue("Last-Modified").orElse(null);
+  }
+
+  /** A committed download offset along with the validator of the downloaded resource. */
+  private static final class Checkpoint {
+
+    private static final String OFFSET_KEY = "offset";
+    private static final String VALIDATOR_KEY = "validator";
+
+    final long offset;
+    final String validator;
+
+    Checkpoint(long offset, String validator) {
+      this.offset = offset;
+      this.validator = validator;
+    }
+
+    void write(Path checkpointFile) throws IOException {
+      var properties = new Properties();
+      properties.setProperty(OFFSET_KEY, Long.toString(offset));
+      properties.setProperty(VALIDATOR_KEY, validator);
+      // Write to a temp file first so a checkpoint is never seen partially written
+      var tempFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+      try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+        properties.store(writer, null);
+      }
+      Files.move(
+          tempFile,
+          checkpointFile,
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Reads a checkpoint that is valid for the given file, or returns null if there's none. */
+    static @Nullable Checkpoint read(Path checkpointFile, Path file) throws IOException {
+      if (!Files.exists(checkpointFile) || !Files.exists(file)) {
+        return null;
+      }
+      var properties = new Properties();
+      try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+      var offsetValue = properties.getProperty(OFFSET_KEY);
+      var validator = properties.getProperty(VALIDATOR_KEY);
+      if (offsetValue == null || validator == null) {
+        return null;
+      }
+      long offset = Long.parseLong(offsetValue);
+      return offset >= 0 && offset <= Files.size(file) ? new Checkpoint(offset, validator) : null;
+    }
+  }
+
+  /** Writes the response body into the file while periodically recording checkpoints. */
+  private final class CheckpointingSubscriber implements BodySubscriber<Void> {
+
+    private final @Nullable String validator;
+    private final @Nullable IOException responseError;
+    private final Upstream upstream;
+    private final CompletableFuture<Void> completion;
+    private @MonotonicNonNull FileChannel channel;
+    private long position;
+    private long checkpointedPosition;
+
+    CheckpointingSubscriber(
+        long position, @Nullable String validator, @Nullable IOException responseError) {
+      this.validator = validator;
+      this.responseError = responseError;
+      upstream = new Upstream();
+      completion = new CompletableFuture<>();
+      this.position = position;
+      checkpointedPosition = position;
+    }
+
+    @Override
+    public CompletionStage<Void> getBody() {
+      return completion;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      requireNonNull(subscription);
+      if (upstream.setOrCancel(subscription)) {
+        var error = responseError;
+        if (error != null) {
+          upstream.cancel();
+          completion.completeExceptionally(error);
+          return;
+        }
+
+        try {
+          channel =
+              position > 0
+                  ? FileChannel.open(file, StandardOpenOption.WRITE)
+                  : FileChannel.open(
+                      file,
+                      StandardOpenOption.CREATE,
+                      StandardOpenOption.WRITE,
+                      StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+          upstream.cancel();
+          completion.completeExceptionally(e);
+          return;
+        }
+        upstream.request(1);
+      }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+      requireNonNull(item);
+      var channel = this.channel;
+      if (channel == null) { // onSubscribe failed
+        return;
+      }
+
+      try {
+        for (var buffer : item) {
+          while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+          }
+        }
+        if (position - checkpointedPosition >= CHECKPOINT_INTERVAL) {
+          checkpoint(channel);
+        }
+      } catch (IOException e) {
+        upstream.cancel();
+        completeExceptionally(e);
+        return;
+      }
+      upstream.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      requireNonNull(throwable);
+      upstream.clear();
+      completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      upstream.clear();
+      var channel = this.channel;
+      if (channel == null) {
+        return;
+      }
+
+      try (channel) {
+        channel.truncate(position); // discard any stale content from a previous download
+      } catch (IOException e) {
+        completion.completeExceptionally(e);
+        return;
+      }
+      deleteCheckpoint();
+      completion.complete(null);
+    }
+
+    private void checkpoint(FileChannel channel) throws IOException {
+      if (validator != null) {
+        channel.force(false); // make sure the checkpointed content is durable
+        new Checkpoint(position, validator).write(checkpointFile);
+        checkpointedPosition = position;
+      }
+    }
+
+    private void completeExceptionally(Throwable error) {
+      var channel = this.channel;
+      if (channel != null) {
+        try (channel) {
+          checkpoint(channel); // record progress so far so the download can be resumed
+        } catch (IOException e) {
+          error.addSuppressed(e);
+        }
+      }
+      completion.completeExceptionally(error);
+    }
+  }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.MutableRequest;
+import com.github.mizosoft.methanol.ProgressTracker;
+import com.github.mizosoft.methanol.ProgressTracker.Listener;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Downloads a resource into a file through concurrent {@code Range} requests, each fetching a
+ * segment of the resource. The server is first probed with a {@code HEAD} request. If it doesn't
+ * advertise byte range support or the resource's length, the resource is downloaded with a single
+ * {@code GET} request instead.
+ */
+public final class SegmentedDownload {
+
+  private static final String IDENTITY_ENCODING = "identity";
+
+  private final HttpClient client;
+  private final URI uri;
+  private final Path file;
+  private final int segments;
+  private final @Nullable ProgressTracker tracker;
+  private final @Nullable Listener listener;
+
+  private volatile boolean aborted;
+
+  /**
+   * Creates a new {@code SegmentedDownload}. If {@code listener} is not {@code null}, download
+   * progress is tracked with the given {@code tracker}.
+   */
+  public SegmentedDownload(
+      HttpClient client,
+      URI uri,
+      Path file,
+      int segments,
+      @Nullable ProgressTracker tracker,
+      @Nullable Listener listener) {
+    this.client = requireNonNull(client);
+    this.uri = requireNonNull(uri);
+    this.file = requireNonNull(file);
+    this.segments = segments;
+    this.tracker = tracker;
+    this.listener = listener;
+  }
+
+  /** Starts the download, returning a future that completes with the file when done. */
+  public CompletableFuture<Path> start() {
+    var probe =
+        MutableRequest.create(uri)
+            .method("HEAD", BodyPublishers.noBody())
+            .header("Accept-Encoding", IDENTITY_ENCODING);
+    return client
+        .sendAsync(probe, BodyHandlers.discarding())
+        .thenCompose(
+            response -> {
+              long length = segmentableLength(response);
+              return length > 1 ? downloadSegments(length, response.headers()) : downloadWhole();
+            });
+  }
+
+  /** Returns the resource's length if it can be downloaded in segments, or {@code -1} otherwise. */
+  private long segmentableLength(HttpResponse<?> response) {
+    if (segments <= 1 || response.statusCode() != 200) {
+      return -1;
+    }
+    var headers = response.headers();
+    boolean acceptsByteRanges =
+        headers.allValues("Accept-Ranges").stream()
+            .flatMap(value -> List.of(value.split(",")).stream())
+            .anyMatch(unit -> "bytes".equals(unit.trim().toLowerCase(Locale.ENGLISH)));
+    return acceptsByteRanges ? headers.firstValueAsLong("Content-Length").orElse(-1) : -1;
+  }
+
+  private CompletableFuture<Path> downloadWhole() {
+    var request = MutableRequest.GET(uri).header("Accept-Encoding", IDENTITY_ENCODING);
+    BodyHandler<Path> handler = BodyHandlers.ofFile(file);
+    if (tracker != null && listener != null) {
+      handler = tracker.tracking(handler, listener);
+    }
+    return client
+        .sendAsync(request, handler)
+        .thenCompose(
+            response -> {
+              int statusCode = response.statusCode();
+              return statusCode >= 200 && statusCode < 300
+                  ? CompletableFuture.completedFuture(response.body())
+                  : CompletableFuture.failedFuture(
+                      new IOException("unsuccessful response code: " + statusCode));
+            });
+  }
+
+  private CompletableFuture<Path> downloadSegments(long length, HttpHeaders probeHeaders) {
+    FileChannel channel;
+    try {
+      channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    try {
+      channel.write(ByteBuffer.allocate(1), length - 1); // preallocate the file
+    } catch (IOException e) {
+      closeQuietly(channel);
+      return CompletableFuture.failedFuture(e);
+    }
+
+    var progress =
+        tracker != null && listener != null
+            ? new ProgressAggregator(
+                tracker.tracking(BodySubscribers.discarding(), listener, length))
+            : null;
+    // Make sure segments are served from the same representation of the resource
+    var validator = strongValidator(probeHeaders);
+    int segmentCount = (int) Math.min(segments, length);
+    long baseSegmentLength = length / segmentCount;
+    long extraBytes = length % segmentCount; // distributed among the first segments
+    var segmentFutures = new CompletableFuture<?>[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      long start = i * baseSegmentLength + Math.min(i, extraBytes);
+      long end = start + baseSegmentLength + (i < extraBytes ? 1 : 0); // exclusive
+      var request =
+          MutableRequest.GET(uri)
+              .header("Accept-Encoding", IDENTITY_ENCODING)
+              .header("Range", "bytes=" + start + "-" + (end - 1));
+      if (validator != null) {
+        request.header("If-Range", validator);
+      }
+      segmentFutures[i] =
+          client
+              .sendAsync(
+                  request,
+                  info -> new SegmentSubscriber(info, channel, start, end, length, progress))
+              .whenComplete(
+                  (response, error) -> {
+                    if (error != null) {
+                      aborted = true; // fail other segments early
+                    }
+                  });
+    }
+    return CompletableFuture.allOf(segmentFutures)
+        .whenComplete(
+            (__, error) -> {
+              closeQuietly(channel);
+              if (progress != null) {
+                progress.complete(error);
+              }
+            })
+        .thenApply(__ -> file);
+  }
+
+  private static @Nullable String strongValidator(HttpHeaders headers) {
+    var etag = headers.firstValue("ETag").orElse(null);
+    if (etag != null && !etag.startsWith("W/")) {
+      return etag;
+    }
+    return headers.firstValue("Last-Modified").orElse(null);
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException ignored) {
+      // Nothing can be done about it
+    }
+  }
+
+  /** Funnels the bytes received by all segments into a single progress tracking subscriber. */
+  private static final class ProgressAggregator {
+
+    private final BodySubscriber<Void> trackingSubscriber;
+
+    ProgressAggregator(BodySubscriber<Void> trackingSubscriber) {
+      this.trackingSubscriber = trackingSubscriber;
+      trackingSubscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+    }
+
+    synchronized void onNext(List<ByteBuffer> item) {
+      trackingSubscriber.onNext(item);
+    }
+
+    synchronized void complete(@Nullable Throwable error) {
+      if (error != null) {
+        trackingSubscriber.onError(error);
+      } else {
+        trackingSubscriber.onComplete();
+      }
+    }
+  }
+
+  /** Writes a segment's bytes at their respective positions in the file. */
+  private final class SegmentSubscriber implements BodySubscriber<Void> {
+
+    private final FileChannel channel;
+    private final long end;
+    private final @Nullable ProgressAggregator progress;
+    private final @Nullable IOException responseError;
+    private final Upstream upstream;
+    private final CompletableFuture<Void> completion;
+    private long position;
+
+    SegmentSubscriber(
+        ResponseInfo info,
+        FileChannel channel,
+        long start,
+        long end,
+        long length,
+        @Nullable ProgressAggregator progress) {
+      this.channel = channel;
+      this.end = end;
+      this.progress = progress;
+      responseError = checkResponse(info, start, end, length);
+      upstream = new Upstream();
+      completion = new CompletableFuture<>();
+      position = start;
+    }
+
+    @Override
+    public CompletionStage<Void> getBody() {
+      return completion;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      requireNonNull(subscription);
+      if (upstream.setOrCancel(subscription)) {
+        var error = responseError;
+        if (error != null) {
+          fail(error);
+        } else {
+          upstream.request(1);
+        }
+      }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+      requireNonNull(item);
+      if (aborted) {
+        fail(new IOException("download aborted"));
+        return;
+      }
+
+      if (progress != null) {
+        progress.onNext(item);
+      }
+      try {
+        for (var buffer : item) {
+          if (buffer.remaining() > end - position) {
+            throw new IOException("received more bytes than requested");
+          }
+          while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+          }
+        }
+      } catch (IOException e) {
+        fail(e);
+        return;
+      }
+      upstream.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      requireNonNull(throwable);
+      upstream.clear();
+      completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      upstream.clear();
+      if (position != end) {
+        completion.completeExceptionally(
+            new IOException("segment ended prematurely, " + (end - position) + " bytes missing"));
+      } else {
+        completion.complete(null);
+      }
+    }
+
+    private void fail(IOException error) {
+      upstream.cancel();
+      completion.completeExceptionally(error);
+    }
+
+    private @Nullable IOException checkResponse(
+        ResponseInfo info, long start, long end, long length) {
+      if (info.statusCode() != 206) {
+        // The server either ignored the range or the resource changed
+        return new IOException(
+            "unexpected response code for a range request: " + info.statusCode());
+      }
+      var expectedRange = "bytes " + start + "-" + (end - 1) + "/" + length;
+      var contentRange = info.headers().firstValue("Content-Range").orElse("");
+      if (!contentRange.trim().equalsIgnoreCase(expectedRange)) {
+        return new IOException(
+            "unexpected Content-Range, expected <" + expectedRange + "> but got <"
+                + contentRange + ">");
+      }
+      return null;
+    }
+  }
+}
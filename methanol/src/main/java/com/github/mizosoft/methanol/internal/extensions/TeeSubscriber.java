@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.AbstractSubscription;
+import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import com.github.mizosoft.methanol.internal.flow.Upstream;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+
+/**
+ * A {@code BodySubscriber} that forwards the response body to multiple downstream subscribers and
+ * completes with the list of their bodies. Items are requested from upstream at the pace of the
+ * slowest downstream, and each downstream has at most a prefetch-sized window of lists that are yet
+ * to be consumed. Each downstream receives its own duplicates of the received buffers, so the
+ * buffers' content is not copied.
+ *
+ * @param <T> the downstream body type
+ */
+public final class TeeSubscriber<T> implements BodySubscriber<List<T>> {
+
+  private final List<Branch> branches;
+  private final Upstream upstream;
+  private final CompletableFuture<List<T>> bodyFuture;
+  private final int prefetch;
+  private final int prefetchThreshold;
+  private long requested; // guarded by this
+  private volatile boolean upstreamComplete;
+
+  public TeeSubscriber(List<? extends BodySubscriber<? extends T>> downstreams) {
+    var branches = new ArrayList<Branch>(downstreams.size());
+    for (var downstream : downstreams) {
+      branches.add(new Branch(requireNonNull(downstream)));
+    }
+    this.branches = List.copyOf(branches);
+    upstream = new Upstream();
+    bodyFuture = new CompletableFuture<>();
+    prefetch = FlowSupport.prefetch();
+    prefetchThreshold = FlowSupport.prefetchThreshold();
+    combineBodies(downstreams);
+  }
+
+  @Override
+  public CompletionStage<List<T>> getBody() {
+    return bodyFuture;
+  }
+
+  @Override
+  public void onSubscribe(Subscription subscription) {
+    requireNonNull(subscription);
+    if (upstream.setOrCancel(subscription)) {
+      for (var branch : branches) {
+        branch.signal(true); // apply onSubscribe
+      }
+      requestMore();
+    }
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> item) {
+    requireNonNull(item);
+    for (var branch : branches) {
+      if (!branch.isDropped()) {
+        var duplicates = new ArrayList<ByteBuffer>(item.size());
+        for (var buffer : item) {
+          duplicates.add(buffer.duplicate());
+        }
+        branch.lists.add(duplicates);
+        branch.signal(false);
+      }
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    requireNonNull(throwable);
+    upstream.clear();
+    for (var branch : branches) {
+      branch.signalError(throwable);
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    upstream.clear();
+    upstreamComplete = true;
+    for (var branch : branches) {
+      branch.signal(true);
+    }
+  }
+
+  private void combineBodies(List<? extends BodySubscriber<? extends T>> downstreams) {
+    var bodies = new ArrayList<CompletableFuture<? extends T>>(downstreams.size());
+    for (var downstream : downstreams) {
+      var body = downstream.getBody().toCompletableFuture();
+      body.whenComplete(
+          (__, error) -> {
+            if (error != null) {
+              bodyFuture.completeExceptionally(error); // fail fast
+            }
+          });
+      bodies.add(body);
+    }
+    CompletableFuture.allOf(bodies.toArray(CompletableFuture<?>[]::new))
+        .thenRun(
+            () -> {
+              var results = new ArrayList<T>(bodies.size());
+              for (var body : bodies) {
+                results.add(body.join());
+              }
+              bodyFuture.complete(results);
+            });
+  }
+
+  /**
+   * Requests more items from upstream if the window of the slowest active downstream falls to the
+   * prefetch threshold. Upstream is cancelled if all downstreams cancel their subscriptions.
+   */
+  private void requestMore() {
+    long n;
+    synchronized (this) {
+      long minConsumed = Long.MAX_VALUE;
+      for (var branch : branches) {
+        if (!branch.isDropped()) {
+          minConsumed = Math.min(minConsumed, branch.consumed);
+        }
+      }
+      if (minConsumed == Long.MAX_VALUE) { // all downstreams cancelled
+        n = -1;
+      } else {
+        long window = requested - minConsumed;
+        n = window <= prefetchThreshold ? prefetch - window : 0;
+        requested += n;
+      }
+    }
+    if (n < 0) {
+      upstream.cancel();
+    } else if (n > 0) {
+      upstream.request(n);
+    }
+  }
+
+  private final class Branch extends AbstractSubscription<List<ByteBuffer>> {
+
+    final ConcurrentLinkedQueue<List<ByteBuffer>> lists;
+    volatile long consumed; // only written within emit
+
+    Branch(Subscriber<? super List<ByteBuffer>> downstream) {
+      super(downstream, FlowSupport.SYNC_EXECUTOR);
+      lists = new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    protected long emit(Subscriber<? super List<ByteBuffer>> downstream, long emit) {
+      long submitted = 0L;
+      while (true) {
+        List<ByteBuffer> list;
+        if (lists.isEmpty() && upstreamComplete) {
+          cancelOnComplete(downstream);
+          return 0L;
+        } else if (submitted >= emit || (list = lists.poll()) == null) {
+          if (submitted > 0) {
+            requestMore();
+          }
+          return submitted;
+        } else if (submitOnNext(downstream, list)) {
+          submitted++;
+          consumed++;
+        } else {
+          return 0L;
+        }
+      }
+    }
+
+    @Override
+    protected void abort(boolean flowInterrupted) {
+      lists.clear();
+      if (flowInterrupted) {
+        requestMore(); // the slowest downstream might have been dropped
+      }
+    }
+
+    boolean isDropped() {
+      return isCancelled();
+    }
+  }
+}
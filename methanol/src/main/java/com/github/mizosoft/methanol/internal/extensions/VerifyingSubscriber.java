@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.extensions;
+
+import static java.util.Objects.requireNonNull;
+
+import com.github.mizosoft.methanol.internal.flow.ForwardingBodySubscriber;
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * A {@code BodySubscriber} that computes a digest or a checksum of the response body as it passes
+ * through to the downstream, and completes the downstream with an {@code IOException} instead of
+ * normally if the result doesn't match the expected value.
+ */
+public final class VerifyingSubscriber<T> extends ForwardingBodySubscriber<T> {
+
+  /** The name of the CRC32C checksum, which is recognized besides {@code MessageDigest} names. */
+  public static final String CRC32C_ALGORITHM = "CRC32C";
+
+  private final Hasher hasher;
+  private final byte[] expected;
+
+  public VerifyingSubscriber(BodySubscriber<T> downstream, String algorithm, byte[] expected) {
+    super(downstream);
+    this.hasher = newHasher(algorithm);
+    this.expected = expected.clone();
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> item) {
+    requireNonNull(item);
+    for (var buffer : item) {
+      hasher.update(buffer.duplicate()); // don't consume the buffer
+    }
+    super.onNext(item);
+  }
+
+  @Override
+  public void onComplete() {
+    byte[] actual = hasher.digest();
+    if (MessageDigest.isEqual(expected, actual)) {
+      super.onComplete();
+    } else {
+      super.onError(
+          new IOException(
+              "body verification failed, expected "
+                  + hasher.algorithm()
+                  + " <"
+                  + toHexString(expected)
+                  + "> but was <"
+                  + toHexString(actual)
+                  + ">"));
+    }
+  }
+
+  /**
+   * Ensures the given algorithm is supported by {@link #VerifyingSubscriber(BodySubscriber,
+   * String, byte[])}.
+   *
+   * @throws IllegalArgumentException if the algorithm is not supported
+   */
+  public static void requireSupportedAlgorithm(String algorithm) {
+    newHasher(algorithm);
+  }
+
+  private static Hasher newHasher(String algorithm) {
+    requireNonNull(algorithm);
+    if (CRC32C_ALGORITHM.equalsIgnoreCase(algorithm)) {
+      return new ChecksumHasher();
+    }
+    try {
+      return new DigestHasher(MessageDigest.getInstance(algorithm));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException("unsupported algorithm: " + algorithm, e);
+    }
+  }
+
+  private static String toHexString(byte[] bytes) {
+    var sb = new StringBuilder(2 * bytes.length);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  private interface Hasher {
+
+    String algorithm();
+
+    void update(ByteBuffer buffer);
+
+    byte[] digest();
+  }
+
+  private static final class DigestHasher implements Hasher {
+
+    private final MessageDigest digest;
+
+    DigestHasher(MessageDigest digest) {
+      this.digest = digest;
+    }
+
+    @Override
+    public String algorithm() {
+      return digest.getAlgorithm();
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+      digest.update(buffer);
+    }
+
+    @Override
+    public byte[] digest() {
+      return digest.digest();
+    }
+  }
+
+  /** Produces the checksum's value as 4 big-endian bytes. */
+  private static final class ChecksumHasher implements Hasher {
+
+    private final CRC32C checksum = new CRC32C();
+
+    ChecksumHasher() {}
+
+    @Override
+    public String algorithm() {
+      return CRC32C_ALGORITHM;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+      checksum.update(buffer);
+    }
+
+    @Override
+    public byte[] digest() {
+      return ByteBuffer.allocate(Integer.BYTES).putInt((int) checksum.getValue()).array();
+    }
+  }
+}
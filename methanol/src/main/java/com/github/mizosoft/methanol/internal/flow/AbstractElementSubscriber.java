@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.flow;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A {@code BodySubscriber} that decodes the body into a {@code Publisher} of elements. Elements
+ * are decoded as they're requested, and the body is requested from upstream only as much as needed
+ * to satisfy downstream demand. The returned publisher can be subscribed to only once, and
+ * cancelling its subscription cancels the body.
+ *
+ * <p>Subclasses implement {@link #decodeNext()}, which polls the received buffers with {@link
+ * #pollInput()}. Decoding state can be kept in subclass fields as {@code decodeNext()} is never
+ * called concurrently.
+ */
+public abstract class AbstractElementSubscriber<T> implements BodySubscriber<Publisher<T>> {
+
+  private final Upstream upstream;
+  private final ConcurrentLinkedQueue<ByteBuffer> input;
+  private final AtomicBoolean inputRequested;
+  private final AtomicBoolean subscribed;
+  private volatile @Nullable ElementSubscription downstreamSubscription;
+  private volatile boolean upstreamComplete;
+  private volatile @Nullable Throwable upstreamError;
+
+  // Accessed only within decodeNext()
+  private boolean endOfInput;
+
+  protected AbstractElementSubscriber() {
+    upstream = new Upstream();
+    input = new ConcurrentLinkedQueue<>();
+    inputRequested = new AtomicBoolean();
+    subscribed = new AtomicBoolean();
+  }
+
+  /**
+   * Decodes the next element from the input polled so far, polling more with {@link #pollInput()}
+   * as needed. Returns {@code null} if no more elements can be decoded until more input is
+   * received, or if all elements have been decoded after {@link #isEndOfInput() the end of input}
+   * has been reached, in which case downstream is completed.
+   *
+   * @throws IOException if the input is malformed, in which case downstream is completed
+   *     exceptionally and the body is cancelled
+   */
+  protected abstract @Nullable T decodeNext() throws IOException;
+
+  /**
+   * Returns the next received buffer, or {@code null} if no buffer is currently available. After
+   * {@code null} is returned, {@link #isEndOfInput()} tells whether more input can be received.
+   */
+  protected final @Nullable ByteBuffer pollInput() {
+    boolean complete = upstreamComplete; // read before polling as it's set after the last item
+    ByteBuffer buffer = input.poll();
+    if (buffer == null && complete) {
+      endOfInput = true;
+    }
+    return buffer;
+  }
+
+  /** Returns whether all the body has been polled and no more input can be received. */
+  protected final boolean isEndOfInput() {
+    return endOfInput;
+  }
+
+  @Override
+  public final CompletionStage<Publisher<T>> getBody() {
+    return CompletableFuture.completedFuture(this::subscribeElements);
+  }
+
+  @Override
+  public final void onSubscribe(Subscription subscription) {
+    requireNonNull(subscription);
+    if (upstream.setOrCancel(subscription) && inputRequested.get()) {
+      upstream.request(1); // input was requested before upstream was set
+    }
+  }
+
+  @Override
+  public final void onNext(List<ByteBuffer> item) {
+    requireNonNull(item);
+    for (ByteBuffer buffer : item) {
+      if (buffer.hasRemaining()) {
+        input.add(buffer);
+      }
+    }
+    inputRequested.set(false);
+    signalDownstream();
+  }
+
+  @Override
+  public final void onError(Throwable throwable) {
+    requireNonNull(throwable);
+    upstream.clear();
+    upstreamError = throwable;
+    signalDownstream();
+  }
+
+  @Override
+  public final void onComplete() {
+    upstream.clear();
+    upstreamComplete = true;
+    signalDownstream();
+  }
+
+  private void subscribeElements(Subscriber<? super T> subscriber) {
+    requireNonNull(subscriber);
+    ElementSubscription subscription = new ElementSubscription(subscriber);
+    if (subscribed.compareAndSet(false, true)) {
+      downstreamSubscription = subscription;
+      subscription.signal(true); // apply onSubscribe
+    } else {
+      Throwable error =
+          new IllegalStateException("already subscribed, multiple subscribers not supported");
+      try {
+        subscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+      } catch (Throwable t) {
+        error.addSuppressed(t);
+      } finally {
+        subscriber.onError(error);
+      }
+    }
+  }
+
+  private void signalDownstream() {
+    ElementSubscription subscription = downstreamSubscription;
+    if (subscription != null) {
+      subscription.signal(true); // termination is signalled regardless of demand
+    }
+  }
+
+  private void requestInput() {
+    if (inputRequested.compareAndSet(false, true)) {
+      upstream.request(1);
+    }
+  }
+
+  private final class ElementSubscription extends AbstractSubscription<T> {
+
+    private @Nullable T pendingElement;
+
+    ElementSubscription(Subscriber<? super T> downstream) {
+      super(downstream, FlowSupport.SYNC_EXECUTOR);
+    }
+
+    @Override
+    protected long emit(Subscriber<? super T> downstream, long emit) {
+      long submitted = 0L;
+      while (true) {
+        Throwable error;
+        T element = pendingElement;
+        if ((error = upstreamError) != null) {
+          cancelOnError(downstream, error, false);
+          return 0L;
+        } else if (element != null) {
+          if (submitted >= emit) {
+            return submitted;
+          }
+          pendingElement = null;
+          if (submitOnNext(downstream, element)) {
+            submitted++;
+          } else {
+            return 0L;
+          }
+          continue;
+        }
+
+        try {
+          element = decodeNext();
+        } catch (IOException | RuntimeException e) {
+          cancelOnError(downstream, e, true);
+          return 0L;
+        }
+
+        if (element != null) {
+          pendingElement = element;
+        } else if (endOfInput) {
+          cancelOnComplete(downstream);
+          return 0L;
+        } else {
+          if (submitted < emit) {
+            requestInput();
+          }
+          return submitted;
+        }
+      }
+    }
+
+    @Override
+    protected void abort(boolean flowInterrupted) {
+      if (flowInterrupted) {
+        upstream.cancel();
+      }
+      input.clear();
+      pendingElement = null;
+    }
+  }
+}
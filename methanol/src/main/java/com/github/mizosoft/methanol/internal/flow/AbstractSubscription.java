@@ -44,6 +44,13 @@ public abstract class AbstractSubscription<T> implements Subscription {
    * Implementation is loosely modeled after SubmissionPublisher$BufferedSubscription, mainly
    * regarding how execution is controlled by CASes on a state field that manipulate bits
    * representing execution states.
+   *
+   * A drain task emits as many items as demand allows in one pass. When running on an
+   * asynchronous executor, the task gives way to other tasks after submitting a budget of items
+   * (see FlowSupport::drainBudget) by re-dispatching itself, keeping the RUN bit set so that
+   * concurrent signals don't spawn another task meanwhile. If the executor runs the re-dispatched
+   * task inline (e.g. Runnable::run), the nested run() only marks that it was entered & returns,
+   * and the yielding task carries on with the drain, so the stack doesn't grow with each budget.
    */
 
   private static final int RUN = 0x1; // run signaller task
@@ -51,15 +58,20 @@ public abstract class AbstractSubscription<T> implements Subscription {
   private static final int CANCELLED = 0x4; // subscription is cancelled
   private static final int SUBSCRIBED = 0x8; // onSubscribe called
 
+  // Set as the yielder by a run() that is entered inline from yieldDrain()
+  private static final Object INLINE_YIELD = new Object();
+
   private static final VarHandle STATE;
   private static final VarHandle PENDING_ERROR;
   private static final VarHandle DEMAND;
+  private static final VarHandle YIELDER;
 
   static {
     MethodHandles.Lookup lookup = MethodHandles.lookup();
     try {
       STATE = lookup.findVarHandle(AbstractSubscription.class, "state", int.class);
       DEMAND = lookup.findVarHandle(AbstractSubscription.class, "demand", long.class);
+      YIELDER = lookup.findVarHandle(AbstractSubscription.class, "yielder", Object.class);
       PENDING_ERROR =
           lookup.findVarHandle(AbstractSubscription.class, "pendingError", Throwable.class);
     } catch (NoSuchFieldException | IllegalAccessException e) {
@@ -69,13 +81,19 @@ public abstract class AbstractSubscription<T> implements Subscription {
 
   private final Subscriber<? super T> downstream;
   private final Executor executor;
+  private final long drainBudget;
   private volatile int state;
   private volatile long demand;
   private volatile @Nullable Throwable pendingError;
+  // The thread currently re-dispatching the drain in yieldDrain(), or INLINE_YIELD
+  private volatile @Nullable Object yielder;
 
   protected AbstractSubscription(Subscriber<? super T> downstream, Executor executor) {
     this.downstream = downstream;
     this.executor = executor;
+    // Yielding is pointless if items are submitted inline
+    drainBudget =
+        executor == FlowSupport.SYNC_EXECUTOR ? Long.MAX_VALUE : FlowSupport.drainBudget();
   }
 
   @Override
@@ -178,9 +196,53 @@ public abstract class AbstractSubscription<T> implements Subscription {
     return false;
   }
 
+  /**
+   * Submits the given item directly to downstream, bypassing the queue-and-drain round trip,
+   * provided that downstream is signalled inline (i.e. the executor is {@link
+   * FlowSupport#SYNC_EXECUTOR}), it has outstanding demand, no drain task is currently running and
+   * the implementation has no {@link #hasQueuedItems() queued items}. Returns {@code true} if the
+   * item was consumed by this method, otherwise it is the caller's responsibility to queue the
+   * item and {@link #signal(boolean) signal} it as usual.
+   */
+  public final boolean trySubmitInline(T item) {
+    int s = state;
+    if (executor != FlowSupport.SYNC_EXECUTOR
+        || (s & (SUBSCRIBED | RUN | CANCELLED)) != SUBSCRIBED
+        || demand <= 0L
+        || !STATE.compareAndSet(this, s, s | RUN)) {
+      return false;
+    }
+
+    // Now that we own the drain, recheck that submitting won't reorder items
+    boolean consumed = false;
+    if (demand > 0L && !hasQueuedItems()) {
+      consumed = true;
+      if (submitOnNext(downstream, item)) {
+        subtractAndGetDemand(this, DEMAND, 1L);
+      }
+    }
+    // Continue as a normal drain task if signalled meanwhile
+    if (!STATE.compareAndSet(this, s | RUN, s)) {
+      run();
+    }
+    return consumed;
+  }
+
+  /**
+   * Returns {@code true} if the implementation has items that are yet to be emitted. Called by
+   * {@link #trySubmitInline(Object)} to retain the order of items. The default implementation
+   * returns {@code true}, effectively disabling inline submission.
+   */
+  protected boolean hasQueuedItems() {
+    return true;
+  }
+
   private void signal() {
     boolean casSucceeded = false;
     for (int s; !casSucceeded && ((s = state) & CANCELLED) == 0; ) {
+      if ((s & (RUN | KEEP_ALIVE)) == (RUN | KEEP_ALIVE)) {
+        break; // the running task is already bound to recheck for signals
+      }
       int setBit = (s & RUN) != 0 ? KEEP_ALIVE : RUN; // try to keep alive or run & execute
       casSucceeded = STATE.compareAndSet(this, s, s | setBit);
       if (casSucceeded && setBit == RUN) {
@@ -198,17 +260,41 @@ public abstract class AbstractSubscription<T> implements Subscription {
   }
 
   private void run() {
+    Object y = yielder;
+    if (y != null) {
+      if (y == Thread.currentThread()) {
+        yielder = INLINE_YIELD; // entered inline from yieldDrain(), which continues the drain
+        return;
+      }
+      YIELDER.compareAndSet(this, y, null); // dispatched to another thread, forget the yielder
+    }
+    drain();
+  }
+
+  private void drain() {
     int s;
     Subscriber<? super T> d = downstream;
     subscribeOnDrain(d);
+    long budget = drainBudget; // items that can be submitted before yielding
     for (long x = 0L, r = demand; ((s = state) & CANCELLED) == 0; ) {
       long emitted;
       Throwable error = pendingError;
       if (error != null) {
         pendingError = null;
         cancelOnError(d, error, false);
-      } else if ((emitted = emit(d, r - x)) > 0L) {
+      } else if (budget <= 0L) {
+        if (x > 0L) {
+          subtractAndGetDemand(this, DEMAND, x);
+          x = 0L;
+        }
+        if (!yieldDrain(d)) {
+          break; // continued in a fresh task, RUN bit is retained
+        }
+        budget = drainBudget;
+        r = demand;
+      } else if ((emitted = emit(d, Math.min(r - x, budget))) > 0L) {
         x += emitted;
+        budget -= emitted;
         r = demand; // get fresh demand
         if (x == r) { // 'x' needs to be flushed
           r = subtractAndGetDemand(this, DEMAND, x);
@@ -233,6 +319,28 @@ public abstract class AbstractSubscription<T> implements Subscription {
     }
   }
 
+  /**
+   * Re-dispatches the drain to the executor. Returns {@code true} if the executor ran the task
+   * inline, in which case the caller is to continue the drain itself.
+   */
+  private boolean yieldDrain(Subscriber<? super T> downstream) {
+    Thread current = Thread.currentThread();
+    yielder = current;
+    try {
+      executor.execute(this::run);
+    } catch (RuntimeException | Error e) {
+      YIELDER.compareAndSet(this, current, null);
+      // unlike in signal(), downstream can be notified here as this is a drain task
+      cancelOnError(downstream, e, true);
+      return false;
+    }
+    if (YIELDER.compareAndSet(this, INLINE_YIELD, null)) {
+      return true;
+    }
+    YIELDER.compareAndSet(this, current, null); // the task hasn't started yet
+    return false;
+  }
+
   private void subscribeOnDrain(Subscriber<? super T> downstream) {
     if ((state & (SUBSCRIBED | CANCELLED)) == 0
         && (getAndBitwiseOrState(SUBSCRIBED) & (SUBSCRIBED | CANCELLED)) == 0) {
@@ -32,6 +32,7 @@ public class FlowSupport {
   private static final String PREFETCH_PROP = "com.github.mizosoft.methanol.flow.prefetch";
   private static final String PREFETCH_FACTOR_PROP =
       "com.github.mizosoft.methanol.flow.prefetchFactor";
+  private static final String DRAIN_BUDGET_PROP = "com.github.mizosoft.methanol.flow.drainBudget";
 
   // The value is small because usage is normally with ByteBuffer items, which already
   // take non-trivial space (the HTTP-client allocates 16Kb sizes). So using
@@ -39,9 +40,13 @@ public class FlowSupport {
   private static final int DEFAULT_PREFETCH = 16;
   // Request more when half consumed
   private static final int DEFAULT_PREFETCH_FACTOR = 50;
+  // Maximum number of items a drain task submits before giving way to other tasks
+  // in the executor, only applicable to asynchronous executors
+  private static final int DEFAULT_DRAIN_BUDGET = 128;
 
   private static final int PREFETCH = loadPrefetch();
   private static final int PREFETCH_THRESHOLD = (int) (PREFETCH * (loadPrefetchFactor() / 100f));
+  private static final int DRAIN_BUDGET = loadDrainBudget();
 
   // A subscription that does nothing
   public static final Flow.Subscription NOOP_SUBSCRIPTION =
@@ -74,6 +79,14 @@ public class FlowSupport {
     return prefetchFactor;
   }
 
+  static int loadDrainBudget() {
+    int drainBudget = Integer.getInteger(DRAIN_BUDGET_PROP, DEFAULT_DRAIN_BUDGET);
+    if (drainBudget <= 0) {
+      return DEFAULT_DRAIN_BUDGET;
+    }
+    return drainBudget;
+  }
+
   /**
    * Returns an {@code IllegalArgumentException} to signal if the subscriber requests a non-positive
    * number of items.
@@ -95,6 +108,15 @@ public class FlowSupport {
     return PREFETCH_THRESHOLD;
   }
 
+  /**
+   * Returns the maximum number of items a subscription's drain task submits in one run before
+   * yielding to its executor, as specified by the drain budget property or a default of {@value
+   * DEFAULT_DRAIN_BUDGET}.
+   */
+  public static int drainBudget() {
+    return DRAIN_BUDGET;
+  }
+
   /** Adds given count to demand not exceeding {@code Long.MAX_VALUE}. */
   public static long getAndAddDemand(Object owner, VarHandle demand, long n) {
     while (true) {
@@ -22,15 +22,32 @@
 
 package com.github.mizosoft.methanol.internal.spi;
 
+import com.github.mizosoft.methanol.BodyAdapter;
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
 import com.github.mizosoft.methanol.BodyAdapter.Encoder;
+import com.github.mizosoft.methanol.MediaType;
+import com.github.mizosoft.methanol.TypeRef;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Utility class for loading/caching {@code Encoder/Decoder} providers. */
 public class BodyAdapterFinder {
 
+  /**
+   * The maximum number of lookups cached for each of encoders and decoders. This guards against
+   * unbounded growth when types or media type parameters (e.g. a multipart boundary) vary from one
+   * lookup to another, in which case the least recently used lookups are evicted.
+   */
+  private static final int MAX_CACHED_LOOKUPS = 1024;
+
   private static final ServiceCache<Encoder> REQUEST_SERVICE = new ServiceCache<>(Encoder.class);
   private static final ServiceCache<Decoder> RESPONSE_SERVICE = new ServiceCache<>(Decoder.class);
+  private static final LookupCache<Encoder> ENCODER_LOOKUPS = new LookupCache<>();
+  private static final LookupCache<Decoder> DECODER_LOOKUPS = new LookupCache<>();
 
   private BodyAdapterFinder() {} // non-instantiable
 
@@ -41,4 +58,93 @@ public class BodyAdapterFinder {
   public static List<Decoder> findInstalledDecoders() {
     return RESPONSE_SERVICE.getProviders();
   }
+
+  /** Returns the first installed encoder supporting the given type and media type. */
+  public static Optional<Encoder> findEncoder(TypeRef<?> type, @Nullable MediaType mediaType) {
+    return lookupCached(ENCODER_LOOKUPS, findInstalledEncoders(), type, mediaType);
+  }
+
+  /** Returns the first installed decoder supporting the given type and media type. */
+  public static Optional<Decoder> findDecoder(TypeRef<?> type, @Nullable MediaType mediaType) {
+    return lookupCached(DECODER_LOOKUPS, findInstalledDecoders(), type, mediaType);
+  }
+
+  /** Discards all cached lookups. */
+  public static void clearLookupCache() {
+    ENCODER_LOOKUPS.clear();
+    DECODER_LOOKUPS.clear();
+  }
+
+  private static <A extends BodyAdapter> Optional<A> lookupCached(
+      LookupCache<A> lookups, List<A> installed, TypeRef<?> type, @Nullable MediaType mediaType) {
+    var key = new LookupKey(type, mediaType);
+    var adapter = lookups.get(key);
+    if (adapter == null) {
+      // Lookups are idempotent so it's fine if concurrent misses compute the same result
+      adapter = lookup(installed, type, mediaType);
+      lookups.put(key, adapter);
+    }
+    return adapter;
+  }
+
+  private static <A extends BodyAdapter> Optional<A> lookup(
+      List<A> installed, TypeRef<?> type, @Nullable MediaType mediaType) {
+    return installed.stream()
+        .filter(a -> a.supportsType(type) && (mediaType == null || a.isCompatibleWith(mediaType)))
+        .findFirst();
+  }
+
+  /** A least recently used cache of lookups that holds at most {@code MAX_CACHED_LOOKUPS}. */
+  private static final class LookupCache<A extends BodyAdapter> {
+
+    private final LinkedHashMap<LookupKey, Optional<A>> lookups =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<LookupKey, Optional<A>> eldest) {
+            return size() > MAX_CACHED_LOOKUPS;
+          }
+        };
+
+    LookupCache() {}
+
+    synchronized @Nullable Optional<A> get(LookupKey key) {
+      return lookups.get(key);
+    }
+
+    synchronized void put(LookupKey key, Optional<A> adapter) {
+      lookups.putIfAbsent(key, adapter);
+    }
+
+    synchronized void clear() {
+      lookups.clear();
+    }
+  }
+
+  private static final class LookupKey {
+
+    private final TypeRef<?> type;
+    private final @Nullable MediaType mediaType;
+
+    LookupKey(TypeRef<?> type, @Nullable MediaType mediaType) {
+      this.type = type;
+      this.mediaType = mediaType;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof LookupKey)) {
+        return false;
+      }
+      LookupKey other = (LookupKey) obj;
+      return type.equals(other.type) && Objects.equals(mediaType, other.mediaType);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + Objects.hashCode(mediaType);
+    }
+  }
 }
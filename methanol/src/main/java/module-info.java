@@ -39,7 +39,8 @@ module methanol {
   exports com.github.mizosoft.methanol.adapter;
   exports com.github.mizosoft.methanol.internal.flow to
       methanol.adapter.jackson,
-      methanol.adapter.jackson.flux;
+      methanol.adapter.jackson.flux,
+      methanol.adapter.protobuf;
 
   uses com.github.mizosoft.methanol.BodyDecoder.Factory;
 
@@ -24,9 +24,12 @@ package com.github.mizosoft.methanol;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.github.mizosoft.methanol.BodyAdapter.Decoder;
+import com.github.mizosoft.methanol.LookupCountingDecoder.CountedType;
 import com.github.mizosoft.methanol.testutils.EmptyPublisher;
 import com.github.mizosoft.methanol.testutils.FailedPublisher;
 import com.github.mizosoft.methanol.testutils.TestException;
@@ -63,6 +66,54 @@ class BodyAdapterTest {
     assertEquals(TestException.class, ex.getCause().getClass());
   }
 
+  @Test
+  void getDecoder_cachedLookup() {
+    var type = TypeRef.from(String.class);
+    var decoder = Decoder.getDecoder(type, null).orElseThrow();
+    assertSame(decoder, Decoder.getDecoder(type, null).orElseThrow());
+    assertSame(decoder, Decoder.getDecoder(type, MediaType.parse("text/plain")).orElseThrow());
+    assertTrue(Decoder.getDecoder(TypeRef.from(Integer.class), null).isEmpty());
+    assertTrue(Decoder.getDecoder(TypeRef.from(Integer.class), null).isEmpty());
+
+    BodyAdapter.clearLookupCache();
+    assertSame(decoder, Decoder.getDecoder(type, null).orElseThrow());
+  }
+
+  @Test
+  void getDecoder_cachedLookupDoesNotQueryDecoders() {
+    var type = TypeRef.from(CountedType.class);
+    BodyAdapter.clearLookupCache();
+    int callsBefore = LookupCountingDecoder.SUPPORTS_TYPE_CALLS.get();
+    var decoder = Decoder.getDecoder(type, null).orElseThrow();
+    assertEquals(LookupCountingDecoder.class, decoder.getClass());
+    int callsAfterFirstLookup = LookupCountingDecoder.SUPPORTS_TYPE_CALLS.get();
+    assertEquals(callsBefore + 1, callsAfterFirstLookup);
+
+    for (int i = 0; i < 10; i++) {
+      assertSame(decoder, Decoder.getDecoder(type, null).orElseThrow());
+    }
+    assertEquals(callsAfterFirstLookup, LookupCountingDecoder.SUPPORTS_TYPE_CALLS.get());
+
+    BodyAdapter.clearLookupCache();
+    assertSame(decoder, Decoder.getDecoder(type, null).orElseThrow());
+    assertEquals(callsAfterFirstLookup + 1, LookupCountingDecoder.SUPPORTS_TYPE_CALLS.get());
+  }
+
+  @Test
+  void getDecoder_cachedLookupAfterManyDistinctMediaTypes() {
+    var type = TypeRef.from(CountedType.class);
+    BodyAdapter.clearLookupCache();
+    // Lookups for media types that only differ in parameters mustn't stop later ones being cached
+    for (int i = 0; i < 2048; i++) {
+      Decoder.getDecoder(type, MediaType.parse("multipart/form-data; boundary=b" + i));
+    }
+    var mediaType = MediaType.parse("application/json");
+    var decoder = Decoder.getDecoder(type, mediaType).orElseThrow();
+    int callsAfterFirstLookup = LookupCountingDecoder.SUPPORTS_TYPE_CALLS.get();
+    assertSame(decoder, Decoder.getDecoder(type, mediaType).orElseThrow());
+    assertEquals(callsAfterFirstLookup, LookupCountingDecoder.SUPPORTS_TYPE_CALLS.get());
+  }
+
   private static <T> CompletableFuture<T> toFuture(BodySubscriber<T> s) {
     return s.getBody().toCompletableFuture();
   }
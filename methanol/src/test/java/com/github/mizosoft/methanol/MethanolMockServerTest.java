@@ -29,9 +29,12 @@ import static java.net.http.HttpResponse.BodyHandlers.ofByteArray;
 import static java.net.http.HttpResponse.BodyHandlers.ofString;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.github.mizosoft.methanol.testutils.ServiceLoggerHelper;
 import com.github.mizosoft.methanol.testutils.TestSubscriber;
@@ -40,18 +43,26 @@ import java.io.IOException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.Deflater;
 import okhttp3.Headers;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.PushPromise;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
 import okio.Buffer;
 import okio.DeflaterSink;
 import okio.GzipSink;
@@ -61,6 +72,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class MethanolMockServerTest {
 
@@ -266,6 +278,59 @@ class MethanolMockServerTest {
     }
   }
 
+  @Test
+  void downloadInSegments(@TempDir Path tempDir) throws Exception {
+    var content = new byte[100_003];
+    new Random(42).nextBytes(content);
+    server.setDispatcher(new RangeDispatcher(content, true));
+    var client = Methanol.newBuilder().executor(executor).build();
+    var file = tempDir.resolve("download");
+    var totalBytesTransferred = new AtomicLong();
+    var completed = new AtomicBoolean();
+    client.downloadAsync(server.url("/").uri(), file, 4, ProgressTracker.create(), progress -> {
+      totalBytesTransferred.set(progress.totalBytesTransferred());
+      completed.compareAndSet(false, progress.completed());
+    }).get();
+    assertArrayEquals(content, Files.readAllBytes(file));
+    assertEquals(content.length, totalBytesTransferred.get());
+    assertTrue(completed.get());
+    assertEquals(1 /* probe */ + 4 /* segments */, server.getRequestCount());
+  }
+
+  @Test
+  void downloadWithoutRangeSupport(@TempDir Path tempDir) throws Exception {
+    var content = new byte[10_000];
+    new Random(42).nextBytes(content);
+    server.setDispatcher(new RangeDispatcher(content, false));
+    var client = Methanol.newBuilder().executor(executor).build();
+    var file = tempDir.resolve("download");
+    client.downloadAsync(server.url("/").uri(), file, 4).get();
+    assertArrayEquals(content, Files.readAllBytes(file));
+    assertEquals(1 /* probe */ + 1 /* whole */, server.getRequestCount());
+  }
+
+  @Test
+  void resumeDownloadAfterFailure(@TempDir Path tempDir) throws Exception {
+    var content = new byte[100_000];
+    new Random(42).nextBytes(content);
+    var dispatcher = new RangeDispatcher(content, true);
+    dispatcher.disconnectDuringNextBody = true;
+    server.setDispatcher(dispatcher);
+    var client = Methanol.newBuilder().executor(executor).build();
+    var file = tempDir.resolve("download");
+    var uri = server.url("/").uri();
+    assertThrows(ExecutionException.class, () -> client.resumableDownloadAsync(uri, file).get());
+    assertTrue(Files.exists(tempDir.resolve("download.checkpoint")));
+
+    client.resumableDownloadAsync(uri, file).get();
+    assertArrayEquals(content, Files.readAllBytes(file));
+    assertFalse(Files.exists(tempDir.resolve("download.checkpoint")));
+    assertNull(server.takeRequest().getHeader("Range"));
+    var resumedRequest = server.takeRequest();
+    assertNotNull(resumedRequest.getHeader("Range"));
+    assertEquals(RangeDispatcher.ETAG, resumedRequest.getHeader("If-Range"));
+  }
+
   private Methanol.Builder useHttps(Methanol.Builder builder) throws IOException {
     var sslContext = localhostSslContext();
     server.useHttps(sslContext.getSocketFactory(), false);
@@ -292,6 +357,46 @@ class MethanolMockServerTest {
     return buffer;
   }
 
+  /** Serves the given content, honoring byte ranges if enabled. */
+  private static final class RangeDispatcher extends Dispatcher {
+    static final String ETAG = "\"1234\"";
+
+    private final byte[] content;
+    private final boolean acceptRanges;
+    volatile boolean disconnectDuringNextBody;
+
+    RangeDispatcher(byte[] content, boolean acceptRanges) {
+      this.content = content;
+      this.acceptRanges = acceptRanges;
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+      var response = new MockResponse().setHeader("ETag", ETAG);
+      if (acceptRanges) {
+        response.setHeader("Accept-Ranges", "bytes");
+      }
+      if ("HEAD".equals(request.getMethod())) {
+        return response.setHeader("Content-Length", content.length);
+      }
+      if (disconnectDuringNextBody) {
+        disconnectDuringNextBody = false;
+        response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+      }
+      var range = request.getHeader("Range");
+      if (acceptRanges && range != null) {
+        var bounds = range.substring("bytes=".length()).split("-", -1);
+        int start = Integer.parseInt(bounds[0]);
+        int end = bounds[1].isEmpty() ? content.length - 1 : Integer.parseInt(bounds[1]);
+        return response
+            .setResponseCode(206)
+            .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length)
+            .setBody(new Buffer().write(content, start, end - start + 1));
+      }
+      return response.setBody(new Buffer().write(content));
+    }
+  }
+
   private static String acceptEncodingValue() {
     return String.join(", ", BodyDecoder.Factory.installedBindings().keySet());
   }
@@ -26,11 +26,34 @@ import static com.github.mizosoft.methanol.MoreBodyPublishers.ofObject;
 import static java.net.http.HttpRequest.BodyPublishers.ofString;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.github.mizosoft.methanol.MoreBodyPublishers.FileOptions;
 import com.github.mizosoft.methanol.testutils.BodyCollector;
+import com.github.mizosoft.methanol.testutils.TestSubscriber;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.reactivestreams.FlowAdapters;
+import org.reactivestreams.example.unicast.AsyncIterablePublisher;
 
 class MoreBodyPublishersTest {
 
@@ -57,4 +80,201 @@ class MoreBodyPublishersTest {
     assertThrows(UnsupportedOperationException.class,
         () -> ofObject("blah", MediaType.parse("application/json")));
   }
+
+  @Test
+  void ofFile(@TempDir Path tempDir) throws IOException {
+    var content = new byte[100_003];
+    new Random(42).nextBytes(content);
+    var file = Files.write(tempDir.resolve("file"), content);
+    var publisher = MoreBodyPublishers.ofFile(file);
+    assertEquals(content.length, publisher.contentLength());
+    assertEquals(ByteBuffer.wrap(content), BodyCollector.collect(publisher));
+  }
+
+  @Test
+  void ofFile_smallBuffersWithRecycling(@TempDir Path tempDir) throws IOException {
+    var content = new byte[10_001];
+    new Random(42).nextBytes(content);
+    var file = Files.write(tempDir.resolve("file"), content);
+    var options =
+        FileOptions.newBuilder().bufferSize(100).readAhead(2).recycleBuffers(true).build();
+    var publisher = MoreBodyPublishers.ofFile(file, options);
+    assertEquals(ByteBuffer.wrap(content), BodyCollector.collect(publisher));
+  }
+
+  @Test
+  void ofFile_memoryMapped(@TempDir Path tempDir) throws IOException {
+    var content = new byte[100_003];
+    new Random(42).nextBytes(content);
+    var file = Files.write(tempDir.resolve("file"), content);
+    var options = FileOptions.newBuilder().bufferSize(1000).memoryMapThreshold(0).build();
+    var publisher = MoreBodyPublishers.ofFile(file, options);
+    assertEquals(ByteBuffer.wrap(content), BodyCollector.collect(publisher));
+  }
+
+  @Test
+  void ofFile_emptyFile(@TempDir Path tempDir) throws IOException {
+    var file = Files.createFile(tempDir.resolve("file"));
+    assertEquals(0, BodyCollector.collect(MoreBodyPublishers.ofFile(file)).remaining());
+  }
+
+  @Test
+  void ofFile_nonExistentFile(@TempDir Path tempDir) {
+    assertThrows(
+        FileNotFoundException.class,
+        () -> MoreBodyPublishers.ofFile(tempDir.resolve("not-here")));
+  }
+
+  @Test
+  void ofInputStream() {
+    var content = new byte[100_003];
+    new Random(42).nextBytes(content);
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var publisher =
+          MoreBodyPublishers.ofInputStream(() -> new ByteArrayInputStream(content), executor, 2);
+      assertEquals(-1, publisher.contentLength());
+      assertEquals(ByteBuffer.wrap(content), BodyCollector.collect(publisher));
+      // A new stream is obtained for each subscription
+      assertEquals(ByteBuffer.wrap(content), BodyCollector.collect(publisher));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void ofInputStream_readsAheadBoundedly() {
+    var readCount = new AtomicLong();
+    var stream =
+        new InputStream() {
+          @Override
+          public int read() {
+            readCount.incrementAndGet();
+            return 'a';
+          }
+
+          @Override
+          public int read(byte[] b, int off, int len) {
+            readCount.incrementAndGet();
+            Arrays.fill(b, off, off + len, (byte) 'a');
+            return len;
+          }
+        };
+    var publisher = MoreBodyPublishers.ofInputStream(() -> stream, Runnable::run, 3);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    subscriber.request = 0L;
+    publisher.subscribe(subscriber);
+    subscriber.awaitSubscribe();
+    assertEquals(3, readCount.get()); // chunks are read ahead of demand
+
+    subscriber.subscription.request(2);
+    subscriber.awaitNext(2);
+    assertEquals(5, readCount.get());
+    subscriber.subscription.cancel();
+  }
+
+  @Test
+  void ofInputStream_failingStream() {
+    var publisher =
+        MoreBodyPublishers.ofInputStream(
+            () ->
+                new InputStream() {
+                  @Override
+                  public int read() throws IOException {
+                    throw new IOException("ouch");
+                  }
+                },
+            Runnable::run,
+            1);
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    publisher.subscribe(subscriber);
+    subscriber.awaitError();
+    assertSame(IOException.class, subscriber.lastError.getClass());
+  }
+
+  @Test
+  void fromPublisher() {
+    var content = new byte[10_000];
+    new Random(42).nextBytes(content);
+    var buffers = new ArrayList<List<ByteBuffer>>();
+    for (int i = 0; i < content.length; i += 1000) {
+      buffers.add(
+          List.of(
+              ByteBuffer.wrap(content, i, 500).slice(),
+              ByteBuffer.wrap(content, i + 500, 500).slice()));
+    }
+    var publisher =
+        MoreBodyPublishers.fromPublisher(
+            FlowAdapters.toFlowPublisher(new AsyncIterablePublisher<>(buffers, Runnable::run)),
+            content.length);
+    assertEquals(content.length, publisher.contentLength());
+    assertEquals(ByteBuffer.wrap(content), BodyCollector.collect(publisher));
+  }
+
+  @Test
+  void fromPublisher_propagatesBackpressureWithoutCopying() {
+    var upstreamRequests = new AtomicLong();
+    var upstreamSubscriber = new AtomicReference<Subscriber<? super List<ByteBuffer>>>();
+    Publisher<List<ByteBuffer>> source =
+        subscriber -> {
+          upstreamSubscriber.set(subscriber);
+          subscriber.onSubscribe(
+              new Subscription() {
+                @Override
+                public void request(long n) {
+                  upstreamRequests.addAndGet(n);
+                }
+
+                @Override
+                public void cancel() {}
+              });
+        };
+    var downstream = new TestSubscriber<ByteBuffer>();
+    downstream.request = 0L;
+    MoreBodyPublishers.fromPublisher(source, -1).subscribe(downstream);
+    downstream.awaitSubscribe();
+    assertEquals(0, upstreamRequests.get());
+
+    downstream.subscription.request(1);
+    assertEquals(1, upstreamRequests.get());
+    var first = US_ASCII.encode("abc");
+    var second = US_ASCII.encode("def");
+    upstreamSubscriber.get().onNext(List.of(first, second));
+    downstream.awaitNext(1);
+    assertSame(first, downstream.items.peekLast());
+    assertEquals(1, upstreamRequests.get()); // second buffer is still to be consumed
+
+    downstream.subscription.request(1);
+    downstream.awaitNext(2);
+    assertSame(second, downstream.items.peekLast());
+    assertEquals(1, upstreamRequests.get()); // nothing is requested without downstream demand
+
+    downstream.subscription.request(1);
+    assertEquals(2, upstreamRequests.get());
+
+    upstreamSubscriber.get().onComplete();
+    downstream.awaitComplete();
+  }
+
+  @Test
+  void fromPublisher_subscribeTwice() {
+    var publisher =
+        MoreBodyPublishers.fromPublisher(
+            FlowAdapters.toFlowPublisher(
+                new AsyncIterablePublisher<>(List.<List<ByteBuffer>>of(), Runnable::run)),
+            -1);
+    assertEquals(0, BodyCollector.collect(publisher).remaining());
+    var subscriber = new TestSubscriber<ByteBuffer>();
+    publisher.subscribe(subscriber);
+    subscriber.awaitError();
+    assertSame(IllegalStateException.class, subscriber.lastError.getClass());
+  }
+
+  @Test
+  void fileOptions_illegalValues() {
+    var builder = FileOptions.newBuilder();
+    assertThrows(IllegalArgumentException.class, () -> builder.bufferSize(0));
+    assertThrows(IllegalArgumentException.class, () -> builder.readAhead(0));
+    assertThrows(IllegalArgumentException.class, () -> builder.memoryMapThreshold(-1));
+  }
 }
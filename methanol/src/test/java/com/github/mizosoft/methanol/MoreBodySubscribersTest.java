@@ -23,10 +23,15 @@
 package com.github.mizosoft.methanol;
 
 import static com.github.mizosoft.methanol.MoreBodySubscribers.fromAsyncSubscriber;
+import static com.github.mizosoft.methanol.MoreBodySubscribers.ofAggregatedBody;
+import static com.github.mizosoft.methanol.MoreBodySubscribers.ofByteBuffers;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.ofByteChannel;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.ofDeferredObject;
+import static com.github.mizosoft.methanol.MoreBodySubscribers.ofMappedFile;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.ofObject;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.ofReader;
+import static com.github.mizosoft.methanol.MoreBodySubscribers.tee;
+import static com.github.mizosoft.methanol.MoreBodySubscribers.verifying;
 import static com.github.mizosoft.methanol.MoreBodySubscribers.withReadTimeout;
 import static com.github.mizosoft.methanol.testutils.TestUtils.awaitUninterruptedly;
 import static java.net.http.HttpResponse.BodySubscribers.discarding;
@@ -41,7 +46,9 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import com.github.mizosoft.methanol.internal.extensions.ByteBuffersSubscriber;
 import com.github.mizosoft.methanol.internal.flow.FlowSupport;
+import com.github.mizosoft.methanol.testutils.BodyCollector;
 import com.github.mizosoft.methanol.testutils.BuffListIterator;
 import com.github.mizosoft.methanol.testutils.TestException;
 import com.github.mizosoft.methanol.testutils.TestSubscriber;
@@ -54,6 +61,10 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.InterruptibleChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
@@ -76,9 +87,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.LongStream;
+import java.util.zip.CRC32C;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.reactivestreams.FlowAdapters;
 import org.reactivestreams.example.unicast.AsyncIterablePublisher;
 
@@ -465,6 +478,322 @@ class MoreBodySubscribersTest {
         () -> ofDeferredObject(TypeRef.from(String.class), MediaType.parse("application/json")));
   }
 
+  @Test
+  void ofMappedFile_knownLength(@TempDir Path tempDir) throws IOException {
+    var body = rndAlpha(10_000);
+    var file = tempDir.resolve("body");
+    var subscriber = ofMappedFile(file, body.length());
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    var mapped = getBody(subscriber);
+    assertEquals(body, US_ASCII.decode(mapped).toString());
+    assertEquals(body, Files.readString(file, US_ASCII));
+  }
+
+  @Test
+  void ofMappedFile_unknownLength(@TempDir Path tempDir) throws IOException {
+    var body = rndAlpha(10_000);
+    var file = tempDir.resolve("body");
+    var subscriber = ofMappedFile(file, -1);
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    var mapped = getBody(subscriber);
+    assertEquals(body, US_ASCII.decode(mapped).toString());
+    assertEquals(body, Files.readString(file, US_ASCII));
+  }
+
+  @Test
+  void ofMappedFile_bodyExceedsLength(@TempDir Path tempDir) {
+    var subscriber = ofMappedFile(tempDir.resolve("body"), 5);
+    asciiPublisherOf("abcdefghij", 2, 1).subscribe(subscriber);
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertTrue(ex.getCause() instanceof IOException, ex.toString());
+  }
+
+  @Test
+  void ofMappedFile_bodyShorterThanLength(@TempDir Path tempDir) {
+    var subscriber = ofMappedFile(tempDir.resolve("body"), 20);
+    asciiPublisherOf("abcdefghij", 2, 1).subscribe(subscriber);
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertTrue(ex.getCause() instanceof IOException, ex.toString());
+  }
+
+  @Test
+  void verifying_matchingDigest() throws NoSuchAlgorithmException {
+    var body = rndAlpha(10_000);
+    var expected = MessageDigest.getInstance("SHA-256").digest(body.getBytes(US_ASCII));
+    var subscriber = verifying(ofString(US_ASCII), "SHA-256", expected);
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    assertEquals(body, getBody(subscriber));
+  }
+
+  @Test
+  void verifying_mismatchedDigest() throws NoSuchAlgorithmException {
+    var expected = MessageDigest.getInstance("MD5").digest("abc".getBytes(US_ASCII));
+    var subscriber = verifying(ofString(US_ASCII), "MD5", expected);
+    asciiPublisherOf("abd", 1, 1).subscribe(subscriber);
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertTrue(ex.getCause() instanceof IOException, ex.toString());
+  }
+
+  @Test
+  void verifying_crc32c() {
+    var body = rndAlpha(10_000);
+    var checksum = new CRC32C();
+    checksum.update(body.getBytes(US_ASCII));
+    var expected = ByteBuffer.allocate(4).putInt((int) checksum.getValue()).array();
+    var subscriber = verifying(ofString(US_ASCII), "CRC32C", expected);
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    assertEquals(body, getBody(subscriber));
+
+    expected[0]++;
+    var mismatched = verifying(ofString(US_ASCII), "CRC32C", expected);
+    asciiPublisherOf(body, 100, 5).subscribe(mismatched);
+    var ex = assertThrows(CompletionException.class, () -> getBody(mismatched));
+    assertTrue(ex.getCause() instanceof IOException, ex.toString());
+  }
+
+  @Test
+  void verifying_unsupportedAlgorithm() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> verifying(ofString(US_ASCII), "NOT-A-DIGEST", new byte[0]));
+  }
+
+  @Test
+  void tee_twoSubscribers() {
+    var body = rndAlpha(10_000);
+    var subscriber =
+        tee(ofString(US_ASCII), BodySubscribers.ofByteArray(), (str, bytes) -> str + bytes.length);
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    assertEquals(body + body.length(), getBody(subscriber));
+  }
+
+  @Test
+  void tee_multipleSubscribers() {
+    var body = rndAlpha(10_000);
+    var subscriber = tee(List.of(ofString(US_ASCII), ofString(US_ASCII), ofString(US_ASCII)));
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    assertEquals(List.of(body, body, body), getBody(subscriber));
+  }
+
+  @Test
+  void tee_failingSubscriber() {
+    BodySubscriber<String> failing =
+        BodySubscribers.mapping(
+            ofString(US_ASCII),
+            str -> {
+              throw new TestException();
+            });
+    var subscriber = tee(List.of(ofString(US_ASCII), failing));
+    asciiPublisherOf("abc", 1, 1).subscribe(subscriber);
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertSame(TestException.class, ex.getCause().getClass());
+  }
+
+  @Test
+  void tee_pacedBySlowestSubscriber() {
+    var slow = new TestSubscriber<List<ByteBuffer>>();
+    slow.request = 0L;
+    var subscriber =
+        tee(ofString(US_ASCII), BodySubscribers.fromSubscriber(slow), (str, __) -> str);
+    var upstreamRequests = new AtomicLong();
+    subscriber.onSubscribe(
+        new Subscription() {
+          @Override
+          public void request(long n) {
+            upstreamRequests.addAndGet(n);
+          }
+
+          @Override
+          public void cancel() {}
+        });
+    long initialRequest = upstreamRequests.get();
+    assertTrue(initialRequest > 0);
+    for (int i = 0; i < initialRequest; i++) {
+      subscriber.onNext(List.of(US_ASCII.encode("a")));
+    }
+    assertEquals(initialRequest, upstreamRequests.get()); // slow subscriber consumed nothing
+
+    slow.awaitSubscribe();
+    slow.subscription.request(initialRequest);
+    assertTrue(upstreamRequests.get() > initialRequest);
+  }
+
+  @Test
+  void ofByteBuffers_unknownLength() {
+    var body = rndAlpha(10_000);
+    var subscriber = ofByteBuffers();
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    var buffers = getBody(subscriber);
+    assertEquals(100, buffers.size());
+    var joined = ByteBuffer.allocate(body.length());
+    buffers.forEach(buffer -> {
+      assertTrue(buffer.isReadOnly());
+      joined.put(buffer.duplicate());
+    });
+    assertEquals(body, US_ASCII.decode(joined.flip()).toString());
+  }
+
+  @Test
+  void ofByteBuffers_knownLength() {
+    var body = rndAlpha(10_000);
+    var subscriber = ofByteBuffers(body.length());
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    var buffers = getBody(subscriber);
+    assertEquals(1, buffers.size());
+    assertTrue(buffers.get(0).isReadOnly());
+    assertEquals(body, US_ASCII.decode(buffers.get(0)).toString());
+  }
+
+  @Test
+  void ofByteBuffers_bodyExceedsLength() {
+    var subscriber = ofByteBuffers(5);
+    asciiPublisherOf("abcdefghij", 2, 1).subscribe(subscriber);
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertTrue(ex.getCause() instanceof IOException, ex.toString());
+  }
+
+  @Test
+  void ofByteBuffers_bodyShorterThanLength() {
+    var subscriber = ofByteBuffers(20);
+    asciiPublisherOf("abcdefghij", 2, 1).subscribe(subscriber);
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertTrue(ex.getCause() instanceof IOException, ex.toString());
+  }
+
+  @Test
+  void ofByteBuffers_lengthAboveMaxPresizedLength() {
+    var body = rndAlpha(10_000);
+    var subscriber = new ByteBuffersSubscriber(body.length(), 1000);
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    var buffers = getBody(subscriber);
+    assertEquals(100, buffers.size()); // not copied into a single buffer
+    var joined = ByteBuffer.allocate(body.length());
+    buffers.forEach(buffer -> joined.put(buffer.duplicate()));
+    assertEquals(body, US_ASCII.decode(joined.flip()).toString());
+  }
+
+  @Test
+  void ofByteBuffers_lengthAboveMaxPresizedLength_bodyExceedsLength() {
+    var subscriber = new ByteBuffersSubscriber(5, 1);
+    asciiPublisherOf("abcdefghij", 2, 1).subscribe(subscriber);
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertTrue(ex.getCause() instanceof IOException, ex.toString());
+  }
+
+  @Test
+  void ofByteBuffers_lengthAboveMaxPresizedLength_bodyShorterThanLength() {
+    var subscriber = new ByteBuffersSubscriber(20, 1);
+    asciiPublisherOf("abcdefghij", 2, 1).subscribe(subscriber);
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertTrue(ex.getCause() instanceof IOException, ex.toString());
+  }
+
+  @Test
+  void ofByteBuffers_hugeLengthIsNotAllocatedUpFront() {
+    // Would otherwise attempt to allocate a 2Gb buffer
+    var subscriber = ofByteBuffers(Integer.MAX_VALUE);
+    subscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(US_ASCII.encode("abc")));
+    subscriber.onComplete();
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertTrue(ex.getCause() instanceof IOException, ex.toString());
+  }
+
+  @Test
+  void ofByteBuffers_emptyBodyWithKnownLength() {
+    var subscriber = ofByteBuffers(0);
+    subscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+    subscriber.onComplete();
+    var buffers = getBody(subscriber);
+    assertEquals(1, buffers.size());
+    assertFalse(buffers.get(0).hasRemaining());
+  }
+
+  @Test
+  void ofAggregatedBody_inMemory() throws IOException {
+    var body = rndAlpha(10_000);
+    var subscriber = ofAggregatedBody(20_000);
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    try (var aggregated = getBody(subscriber)) {
+      assertFalse(aggregated.isSpilled());
+      assertEquals(body.length(), aggregated.size());
+      assertEquals(body, new String(aggregated.inputStream().readAllBytes(), US_ASCII));
+      // Content can be read more than once
+      assertEquals(body, new String(aggregated.inputStream().readAllBytes(), US_ASCII));
+      assertEquals(body, US_ASCII.decode(aggregated.asByteBuffer()).toString());
+    }
+  }
+
+  @Test
+  void ofAggregatedBody_spilled() throws IOException {
+    var body = rndAlpha(10_000);
+    var subscriber = ofAggregatedBody(1000);
+    asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+    var aggregated = getBody(subscriber);
+    try (aggregated) {
+      assertTrue(aggregated.isSpilled());
+      assertEquals(body.length(), aggregated.size());
+      assertEquals(body, new String(aggregated.inputStream().readAllBytes(), US_ASCII));
+      var mapped = aggregated.asByteBuffer();
+      assertTrue(mapped.isReadOnly());
+      assertEquals(body, US_ASCII.decode(mapped).toString());
+    }
+    assertThrows(IOException.class, aggregated::inputStream); // file is deleted on close
+  }
+
+  @Test
+  void ofAggregatedBody_asByteBuffers() throws IOException {
+    var body = rndAlpha(10_000);
+    for (long threshold : new long[] {20_000, 1000}) {
+      var subscriber = ofAggregatedBody(threshold);
+      asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+      try (var aggregated = getBody(subscriber)) {
+        var buffers = aggregated.asByteBuffers();
+        if (aggregated.isSpilled()) {
+          assertTrue(buffers.stream().allMatch(ByteBuffer::isReadOnly));
+        } else {
+          // Backing arrays of received heap buffers remain accessible
+          assertTrue(buffers.stream().allMatch(ByteBuffer::hasArray));
+        }
+        assertEquals(body, US_ASCII.decode(BodyCollector.collect(buffers)).toString());
+        // Each call returns new views
+        var otherBuffers = aggregated.asByteBuffers();
+        assertEquals(body, US_ASCII.decode(BodyCollector.collect(otherBuffers)).toString());
+        if (!aggregated.isSpilled()) {
+          // Writes are visible through the body as it shares the returned buffers' content
+          buffers.get(0).put(0, (byte) '*');
+          assertEquals('*', aggregated.inputStream().read());
+          assertEquals('*', aggregated.asByteBuffers().get(0).get(0));
+        }
+      }
+    }
+  }
+
+  @Test
+  void ofAggregatedBody_byteChannel() throws IOException {
+    var body = rndAlpha(10_000);
+    for (long threshold : new long[] {20_000, 1000}) {
+      var subscriber = ofAggregatedBody(threshold);
+      asciiPublisherOf(body, 100, 5).subscribe(subscriber);
+      try (var aggregated = getBody(subscriber);
+          var channel = aggregated.byteChannel()) {
+        var buffer = ByteBuffer.allocate(body.length());
+        while (buffer.hasRemaining() && channel.read(buffer) != -1) {}
+        assertEquals(body, US_ASCII.decode(buffer.flip()).toString());
+      }
+    }
+  }
+
+  @Test
+  void ofAggregatedBody_upstreamError() {
+    var subscriber = ofAggregatedBody(10);
+    subscriber.onSubscribe(FlowSupport.NOOP_SUBSCRIPTION);
+    subscriber.onNext(List.of(US_ASCII.encode("abcdefghijklmnopqrstuvwxyz")));
+    subscriber.onError(new TestException());
+    var ex = assertThrows(CompletionException.class, () -> getBody(subscriber));
+    assertSame(TestException.class, ex.getCause().getClass());
+  }
+
   private Publisher<List<ByteBuffer>> asciiPublisherOf(
       String str, int buffSize, int buffsPerList) {
     return FlowAdapters.toFlowPublisher(new AsyncIterablePublisher<>(
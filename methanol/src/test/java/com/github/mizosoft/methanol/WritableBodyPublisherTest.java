@@ -27,6 +27,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -34,11 +35,19 @@ import com.github.mizosoft.methanol.testutils.BodyCollector;
 import com.github.mizosoft.methanol.testutils.TestException;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.Channels;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.junit.jupiter.api.Test;
 
 class WritableBodyPublisherTest {
@@ -48,6 +57,57 @@ class WritableBodyPublisherTest {
     assertTrue(WritableBodyPublisher.create().contentLength() < 0);
   }
 
+  @Test
+  void knownContentLength() throws IOException {
+    var body = WritableBodyPublisher.create(3);
+    assertEquals(3, body.contentLength());
+    try (var out = body.outputStream()) {
+      out.write(new byte[] {'a', 'b', 'c'});
+    }
+    assertEquals("abc", BodyCollector.collectAscii(body));
+  }
+
+  @Test
+  void writeExceedingContentLength() throws IOException {
+    var subscriber = new TestSubscriber() {
+      Throwable error;
+      @Override public void onError(Throwable t) { this.error = t; }
+    };
+    var body = WritableBodyPublisher.create(3);
+    body.subscribe(subscriber);
+    body.byteChannel().write(US_ASCII.encode("ab"));
+    assertThrows(IOException.class, () -> body.byteChannel().write(US_ASCII.encode("cd")));
+    assertNotNull(subscriber.error);
+    assertEquals(IOException.class, subscriber.error.getClass());
+    assertFalse(body.byteChannel().isOpen());
+  }
+
+  @Test
+  void writeAsyncExceedingContentLength() {
+    var body = WritableBodyPublisher.create(3);
+    assertTrue(body.writeAsync(US_ASCII.encode("abcd")).isCompletedExceptionally());
+    assertFalse(body.byteChannel().isOpen());
+  }
+
+  @Test
+  void closeBeforeReachingContentLength() throws IOException {
+    var subscriber = new TestSubscriber() {
+      Throwable error;
+      @Override public void onError(Throwable t) { this.error = t; }
+    };
+    var body = WritableBodyPublisher.create(3);
+    body.subscribe(subscriber);
+    body.byteChannel().write(US_ASCII.encode("ab"));
+    body.close();
+    assertNotNull(subscriber.error);
+    assertEquals(IOException.class, subscriber.error.getClass());
+  }
+
+  @Test
+  void illegalContentLength() {
+    assertThrows(IllegalArgumentException.class, () -> WritableBodyPublisher.create(-1));
+  }
+
   @Test
   void writeWithByteChannel() throws IOException {
     var body = WritableBodyPublisher.create();
@@ -177,6 +237,219 @@ class WritableBodyPublisherTest {
     assertEquals("abcABC", BodyCollector.collectUtf8(body));
   }
 
+  @Test
+  void nonBlockingWriteOnFullCapacity() throws IOException {
+    var body = WritableBodyPublisher.newBuilder().capacity(2).blocking(false).build();
+    var channel = body.byteChannel();
+    var src = US_ASCII.encode("abc");
+    assertEquals(2, channel.write(src));
+    assertEquals(1, src.remaining());
+    assertEquals(0, channel.write(src));
+    assertEquals(1, src.remaining());
+  }
+
+  @Test
+  void nonBlockingWriteAfterConsumption() throws IOException {
+    var subscriber = new TestSubscriber() {
+      Subscription subscription;
+      final List<ByteBuffer> items = new ArrayList<>();
+      @Override public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+      }
+      @Override public void onNext(ByteBuffer item) { items.add(item); }
+    };
+    var body = WritableBodyPublisher.newBuilder().capacity(2).blocking(false).build();
+    body.subscribe(subscriber);
+    var channel = body.byteChannel();
+    var src = US_ASCII.encode("abcd");
+    assertEquals(2, channel.write(src));
+    assertEquals(0, channel.write(src));
+    subscriber.subscription.request(1);
+    assertEquals(1, subscriber.items.size());
+    assertEquals(2, channel.write(src));
+    assertFalse(src.hasRemaining());
+  }
+
+  @Test
+  void blockingWriteWaitsForConsumption() throws Exception {
+    var subscriber = new TestSubscriber() {
+      volatile Subscription subscription;
+      @Override public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+      }
+      @Override public void onNext(ByteBuffer item) {}
+    };
+    var body = WritableBodyPublisher.newBuilder().capacity(2).build();
+    body.subscribe(subscriber);
+    var write = CompletableFuture.supplyAsync(() -> {
+      try {
+        return body.byteChannel().write(US_ASCII.encode("abcd"));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    assertThrows(TimeoutException.class, () -> write.get(50, TimeUnit.MILLISECONDS));
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(4, write.get(20, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void blockingWriteSignalsWithoutHoldingLock() throws Exception {
+    var body = WritableBodyPublisher.newBuilder().capacity(2).build();
+    var flushFromOtherThread = new CompletableFuture<Void>();
+    var subscriber = new TestSubscriber() {
+      @Override public void onSubscribe(Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+      @Override public void onNext(ByteBuffer item) {
+        // Received inline by the writing thread, which mustn't block others from writing
+        try {
+          CompletableFuture.runAsync(body::flush).get(5, TimeUnit.SECONDS);
+          flushFromOtherThread.complete(null);
+        } catch (Exception e) {
+          flushFromOtherThread.completeExceptionally(e);
+        }
+      }
+    };
+    body.subscribe(subscriber);
+    assertEquals(4, body.byteChannel().write(US_ASCII.encode("abcd")));
+    flushFromOtherThread.get();
+  }
+
+  @Test
+  void writeAfterCancellation() {
+    var subscriber = new TestSubscriber() {
+      @Override public void onSubscribe(Subscription subscription) {
+        subscription.cancel();
+      }
+    };
+    var body = WritableBodyPublisher.create();
+    body.subscribe(subscriber);
+    assertThrows(ClosedChannelException.class, () -> body.byteChannel().write(ByteBuffer.allocate(1)));
+  }
+
+  @Test
+  void illegalCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> WritableBodyPublisher.newBuilder().capacity(0));
+  }
+
+  @Test
+  void writeAsyncWithUnboundedCapacity() throws Exception {
+    var body = WritableBodyPublisher.create();
+    var write = body.writeAsync(US_ASCII.encode("abc"));
+    assertTrue(write.isDone());
+    assertEquals(3, write.get());
+    body.close();
+    assertEquals("abc", BodyCollector.collectAscii(body));
+  }
+
+  @Test
+  void writeAsyncWaitsForConsumption() throws Exception {
+    var subscriber = new TestSubscriber() {
+      Subscription subscription;
+      final List<ByteBuffer> items = new ArrayList<>();
+      @Override public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+      }
+      @Override public void onNext(ByteBuffer item) { items.add(item); }
+    };
+    var body = WritableBodyPublisher.newBuilder().capacity(2).build();
+    body.subscribe(subscriber);
+    var firstWrite = body.writeAsync(US_ASCII.encode("abcd"));
+    var secondWrite = body.writeAsync(US_ASCII.encode("ef"));
+    assertFalse(firstWrite.isDone());
+    assertFalse(secondWrite.isDone());
+    subscriber.subscription.request(1);
+    assertEquals(4, firstWrite.get());
+    assertFalse(secondWrite.isDone());
+    subscriber.subscription.request(1);
+    assertEquals(2, secondWrite.get());
+    subscriber.subscription.request(1);
+    body.flush();
+    var received = new StringBuilder();
+    subscriber.items.forEach(item -> received.append(US_ASCII.decode(item)));
+    assertEquals("abcdef", received.toString());
+  }
+
+  @Test
+  void transferAsyncDoesNotCopy() {
+    var subscriber = new TestSubscriber() {
+      final List<ByteBuffer> items = new ArrayList<>();
+      @Override public void onSubscribe(Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+      @Override public void onNext(ByteBuffer item) { items.add(item); }
+    };
+    var body = WritableBodyPublisher.create();
+    body.subscribe(subscriber);
+    var buffer = US_ASCII.encode("abc");
+    assertTrue(body.transferAsync(buffer).isDone());
+    assertEquals(1, subscriber.items.size());
+    assertSame(buffer, subscriber.items.get(0));
+  }
+
+  @Test
+  void transferAsyncMaintainsOrder() throws IOException {
+    var body = WritableBodyPublisher.create();
+    body.byteChannel().write(US_ASCII.encode("abc"));
+    body.transferAsync(US_ASCII.encode("def"));
+    body.writeAsync(US_ASCII.encode("ghi"));
+    body.close();
+    assertEquals("abcdefghi", BodyCollector.collectAscii(body));
+  }
+
+  @Test
+  void pendingWriteAsyncOnClose() {
+    var body = WritableBodyPublisher.newBuilder().capacity(2).build();
+    var partialWrite = body.writeAsync(US_ASCII.encode("abc"));
+    var pendingWrite = body.writeAsync(US_ASCII.encode("def"));
+    body.close();
+    assertFalse(partialWrite.isDone());
+    assertFalse(pendingWrite.isDone());
+    assertTrue(body.writeAsync(ByteBuffer.allocate(1)).isCompletedExceptionally());
+    // Pending writes are accepted as the body is consumed, and aren't truncated
+    assertEquals("abcdef", BodyCollector.collectAscii(body));
+    assertEquals(3, partialWrite.join());
+    assertEquals(3, pendingWrite.join());
+  }
+
+  @Test
+  void pendingWriteAsyncOnCloseWithContentLength() {
+    var body = WritableBodyPublisher.newBuilder().capacity(2).contentLength(6).build();
+    body.writeAsync(US_ASCII.encode("abc"));
+    body.writeAsync(US_ASCII.encode("def"));
+    body.close();
+    assertEquals("abcdef", BodyCollector.collectAscii(body));
+  }
+
+  @Test
+  void pendingWriteAsyncOnCloseExceptionally() {
+    var body = WritableBodyPublisher.newBuilder().capacity(2).build();
+    var partialWrite = body.writeAsync(US_ASCII.encode("abc"));
+    var pendingWrite = body.writeAsync(US_ASCII.encode("def"));
+    body.closeExceptionally(new TestException());
+    assertEquals(2, partialWrite.join());
+    var error = assertThrows(ExecutionException.class, pendingWrite::get);
+    assertEquals(AsynchronousCloseException.class, error.getCause().getClass());
+    assertTrue(body.writeAsync(ByteBuffer.allocate(1)).isCompletedExceptionally());
+  }
+
+  @Test
+  void pendingWriteAsyncOnCancellationAfterClose() {
+    var body = WritableBodyPublisher.newBuilder().capacity(2).build();
+    var partialWrite = body.writeAsync(US_ASCII.encode("abc"));
+    var pendingWrite = body.writeAsync(US_ASCII.encode("def"));
+    body.close();
+    body.subscribe(new TestSubscriber() {
+      @Override public void onSubscribe(Subscription subscription) {
+        subscription.cancel();
+      }
+    });
+    assertEquals(2, partialWrite.join());
+    var error = assertThrows(ExecutionException.class, pendingWrite::get);
+    assertEquals(AsynchronousCloseException.class, error.getCause().getClass());
+  }
+
   private static class TestSubscriber implements Subscriber<ByteBuffer> {
     @Override public void onSubscribe(Subscription subscription) { /* request nothing */ }
     @Override public void onNext(ByteBuffer item) { throw new AssertionError(); }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2019, 2020 Moataz Abdelnasser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.mizosoft.methanol.internal.flow;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.mizosoft.methanol.testutils.TestException;
+import com.github.mizosoft.methanol.testutils.TestSubscriber;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Flow.Subscription;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.jupiter.api.Test;
+
+class AbstractElementSubscriberTest {
+
+  @Test
+  void decodesElementsOnDemand() {
+    var subscriber = new LineSubscriber();
+    var upstream = new TestSubscription();
+    subscriber.onSubscribe(upstream);
+    assertEquals(0, upstream.requests); // nothing requested before the publisher is subscribed
+
+    var downstream = new TestSubscriber<String>();
+    downstream.request = 0L;
+    subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+    downstream.awaitSubscribe();
+    assertEquals(0, upstream.requests);
+
+    downstream.subscription.request(1);
+    assertEquals(1, upstream.requests);
+    subscriber.onNext(List.of(US_ASCII.encode("a\nb"), US_ASCII.encode("c\nd\n")));
+    assertEquals(List.of("a"), List.copyOf(downstream.items));
+    assertEquals(1, upstream.requests); // "bc" & "d" are decoded from the received input
+
+    downstream.subscription.request(2);
+    assertEquals(List.of("a", "bc", "d"), List.copyOf(downstream.items));
+    assertEquals(1, upstream.requests);
+
+    downstream.subscription.request(1);
+    assertEquals(2, upstream.requests);
+    subscriber.onComplete();
+    assertEquals(1, downstream.completes);
+    assertEquals(List.of("a", "bc", "d"), List.copyOf(downstream.items));
+  }
+
+  @Test
+  void decodingErrorCancelsUpstream() {
+    var subscriber = new LineSubscriber();
+    var upstream = new TestSubscription();
+    subscriber.onSubscribe(upstream);
+    var downstream = new TestSubscriber<String>();
+    subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+    subscriber.onNext(List.of(US_ASCII.encode("a\n!\nb\n")));
+    assertEquals(List.of("a"), List.copyOf(downstream.items));
+    assertEquals(1, downstream.errors);
+    assertTrue(downstream.lastError instanceof IOException, String.valueOf(downstream.lastError));
+    assertEquals(1, upstream.cancels);
+  }
+
+  @Test
+  void incompleteElementAtEndOfInput() {
+    var subscriber = new LineSubscriber();
+    subscriber.onSubscribe(new TestSubscription());
+    var downstream = new TestSubscriber<String>();
+    subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+    subscriber.onNext(List.of(US_ASCII.encode("a\nb")));
+    subscriber.onComplete();
+    assertEquals(List.of("a"), List.copyOf(downstream.items));
+    assertEquals(1, downstream.errors);
+    assertTrue(downstream.lastError instanceof IOException, String.valueOf(downstream.lastError));
+  }
+
+  @Test
+  void upstreamErrorIsPropagated() {
+    var subscriber = new LineSubscriber();
+    subscriber.onSubscribe(new TestSubscription());
+    var downstream = new TestSubscriber<String>();
+    subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+    var error = new TestException();
+    subscriber.onError(error);
+    assertEquals(1, downstream.errors);
+    assertSame(error, downstream.lastError);
+  }
+
+  @Test
+  void cancellationCancelsUpstream() {
+    var subscriber = new LineSubscriber();
+    var upstream = new TestSubscription();
+    subscriber.onSubscribe(upstream);
+    var downstream = new TestSubscriber<String>();
+    subscriber.getBody().toCompletableFuture().join().subscribe(downstream);
+    downstream.awaitSubscribe();
+    downstream.subscription.cancel();
+    assertEquals(1, upstream.cancels);
+  }
+
+  @Test
+  void onlySubscribedOnce() {
+    var subscriber = new LineSubscriber();
+    subscriber.onSubscribe(new TestSubscription());
+    var publisher = subscriber.getBody().toCompletableFuture().join();
+    publisher.subscribe(new TestSubscriber<>());
+    var secondDownstream = new TestSubscriber<String>();
+    publisher.subscribe(secondDownstream);
+    assertEquals(1, secondDownstream.errors);
+    assertTrue(
+        secondDownstream.lastError instanceof IllegalStateException,
+        String.valueOf(secondDownstream.lastError));
+  }
+
+  /** Decodes newline-terminated ASCII lines, failing on lines that are '!'. */
+  private static final class LineSubscriber extends AbstractElementSubscriber<String> {
+
+    private final StringBuilder line = new StringBuilder();
+    private @Nullable ByteBuffer currentInput;
+
+    LineSubscriber() {}
+
+    @Override
+    protected @Nullable String decodeNext() throws IOException {
+      while (true) {
+        var buffer = currentInput;
+        if (buffer == null || !buffer.hasRemaining()) {
+          buffer = pollInput();
+          currentInput = buffer;
+          if (buffer == null) {
+            if (isEndOfInput() && line.length() > 0) {
+              throw new IOException("unterminated line");
+            }
+            return null;
+          }
+        }
+        while (buffer.hasRemaining()) {
+          char c = (char) buffer.get();
+          if (c == '\n') {
+            var decoded = line.toString();
+            line.setLength(0);
+            if (decoded.equals("!")) {
+              throw new IOException("bad line");
+            }
+            return decoded;
+          }
+          line.append(c);
+        }
+      }
+    }
+  }
+
+  private static final class TestSubscription implements Subscription {
+
+    private int requests;
+    private int cancels;
+
+    TestSubscription() {}
+
+    @Override
+    public void request(long n) {
+      requests++;
+    }
+
+    @Override
+    public void cancel() {
+      cancels++;
+    }
+  }
+}
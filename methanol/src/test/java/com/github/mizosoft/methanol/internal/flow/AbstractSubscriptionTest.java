@@ -47,15 +47,20 @@ import static org.junit.jupiter.api.Assertions.fail;
 import com.github.mizosoft.methanol.testutils.TestException;
 import com.github.mizosoft.methanol.testutils.TestSubscriber;
 import com.github.mizosoft.methanol.testutils.TestUtils;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
@@ -383,6 +388,122 @@ class AbstractSubscriptionTest {
     assertEquals(1, s.nexts);
   }
 
+  @Test
+  void drainYieldsAfterBudget() {
+    // Run dispatched tasks one by one to deterministically count them
+    var tasks = new ArrayDeque<Runnable>();
+    var s = new TestSubscriber<Integer>();
+    s.request = 0L;
+    var p = new SubmittableSubscription<>(s, tasks::add);
+    p.signal(true);
+    tasks.poll().run();
+    assertNotNull(s.subscription);
+    int budget = FlowSupport.drainBudget();
+    for (int i = 0; i < 3 * budget; i++)
+      p.items.offer(i);
+    p.complete = true;
+    s.subscription.request(Long.MAX_VALUE);
+    int runs = 0;
+    for (Runnable task; (task = tasks.poll()) != null; runs++)
+      task.run();
+    assertEquals(3 * budget, s.nexts);
+    assertEquals(1, s.completes);
+    // One run per budget, the last of which also completes downstream
+    assertEquals(3, runs);
+  }
+
+  @Test
+  void drainYieldsAfterBudget_pooledExecutor() {
+    var executions = new AtomicInteger();
+    var pool = Executors.newFixedThreadPool(2);
+    try {
+      Executor countingExecutor = r -> {
+        executions.incrementAndGet();
+        pool.execute(r);
+      };
+      var s = new TestSubscriber<Integer>();
+      s.request = 0L;
+      var p = new SubmittableSubscription<>(s, countingExecutor);
+      int budget = FlowSupport.drainBudget();
+      for (int i = 0; i < 3 * budget; i++)
+        p.items.offer(i);
+      p.complete = true;
+      p.signal(true);
+      s.awaitSubscribe();
+      s.subscription.request(Long.MAX_VALUE);
+      s.awaitComplete();
+      assertEquals(1, s.completes);
+      var expected = new ArrayList<Integer>();
+      for (int i = 0; i < 3 * budget; i++)
+        expected.add(i);
+      assertEquals(expected, List.copyOf(s.items)); // yielding retains order
+      // At least one run per budget, the first of which may be the one delivering onSubscribe
+      assertTrue(executions.get() >= 3, "executions: " + executions.get());
+    } finally {
+      TestUtils.shutdown(pool);
+    }
+  }
+
+  @Test
+  void drainContinuesInlineWithSameThreadExecutor() {
+    var depth = new AtomicInteger();
+    var maxDepth = new AtomicInteger();
+    Executor sameThreadExecutor = r -> {
+      maxDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+      try {
+        r.run();
+      } finally {
+        depth.decrementAndGet();
+      }
+    };
+    var s = new TestSubscriber<Integer>();
+    s.request = 0L;
+    var p = new SubmittableSubscription<>(s, sameThreadExecutor);
+    int count = 100 * FlowSupport.drainBudget();
+    for (int i = 0; i < count; i++)
+      p.items.offer(i);
+    p.complete = true;
+    p.signal(true);
+    s.subscription.request(Long.MAX_VALUE);
+    assertEquals(count, s.nexts);
+    assertEquals(1, s.completes);
+    // Yielded runs are entered once inline then handed back to the running drain
+    assertEquals(2, maxDepth.get());
+  }
+
+  @Test
+  void trySubmitInline_onlyWithSyncExecutor() {
+    var s = new TestSubscriber<Integer>();
+    s.request = 0L;
+    var p = subscription(s);
+    p.signal(true);
+    s.awaitSubscribe();
+    assertFalse(p.trySubmitInline(1)); // no demand
+    s.subscription.request(1L);
+    if (executor() == FlowSupport.SYNC_EXECUTOR) {
+      assertTrue(p.trySubmitInline(1));
+      assertEquals(1, s.nexts);
+    } else {
+      assertFalse(p.trySubmitInline(1));
+    }
+  }
+
+  @Test
+  void trySubmitInline_retainsItemOrder() {
+    var s = new TestSubscriber<Integer>();
+    s.request = 0L;
+    var p = subscription(s);
+    p.signal(true);
+    s.awaitSubscribe();
+    s.subscription.request(2L);
+    p.items.offer(1); // queued but not yet signalled
+    if (!p.trySubmitInline(2)) {
+      p.submit(2);
+    }
+    s.awaitNext(2);
+    assertEquals(List.of(1, 2), List.copyOf(s.items));
+  }
+
   private SubmittableSubscription<Integer> subscription(
       Subscriber<? super Integer> downstream) {
     return new SubmittableSubscription<>(downstream, executor());
@@ -415,6 +536,11 @@ class AbstractSubscriptionTest {
       }
     }
 
+    @Override
+    protected boolean hasQueuedItems() {
+      return !items.isEmpty();
+    }
+
     @Override
     protected synchronized void abort(boolean flowInterrupted) {
       if (aborts++ == 0) {
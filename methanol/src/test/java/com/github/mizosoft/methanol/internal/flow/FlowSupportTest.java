@@ -80,4 +80,16 @@ class FlowSupportTest {
     System.setProperty("com.github.mizosoft.methanol.flow.prefetchFactor", "12.123f");
     assertEquals(50, FlowSupport.loadPrefetchFactor());
   }
+
+  @Test
+  void loadDrainBudget_canSetDrainBudget() {
+    System.setProperty("com.github.mizosoft.methanol.flow.drainBudget", "64");
+    assertEquals(64, FlowSupport.loadDrainBudget());
+  }
+
+  @Test
+  void loadDrainBudget_usesDefaultOnNonPositiveValue() {
+    System.setProperty("com.github.mizosoft.methanol.flow.drainBudget", "-1");
+    assertEquals(128, FlowSupport.loadDrainBudget());
+  }
 }